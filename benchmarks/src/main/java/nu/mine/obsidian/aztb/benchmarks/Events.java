@@ -0,0 +1,147 @@
+package nu.mine.obsidian.aztb.benchmarks;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Random;
+
+import nu.mine.obsidian.aztb.collections.v1_0.FixedSearchableFlowAscending;
+import nu.mine.obsidian.aztb.collections.v1_0.FixedSearchableFlowAscending.IFlowElement;
+import nu.mine.obsidian.aztb.collections.v1_0.FixedSearchableFlowAscending.INumericFlowElement;
+
+/**
+ * Timestamp-keyed test elements and helpers shared by the flow benchmarks.
+ * @author AnorZaken
+ */
+final class Events
+{
+	private Events() {}
+	
+	static final int SPACING = 16; //keys are nearly uniformly spaced: i * SPACING + [0 to 3]
+	
+	/**
+	 * A timestamp-keyed element.
+	 */
+	static class Event implements INumericFlowElement<Long>
+	{
+		final long time;
+		
+		Event(final long time) {
+			this.time = time;
+		}
+		
+		@Override
+		public Long getKey() {
+			return time;
+		}
+		
+		@Override
+		public long getNumericKey() {
+			return time;
+		}
+		
+		@Override
+		public int compareToKey(final Long key) {
+			final long k = key.longValue();
+			return time < k ? -1 : (time == k ? 0 : 1);
+		}
+	}
+	
+	/**
+	 * An {@link Event} that counts every key access (i.e. every probe of a search).
+	 */
+	static final class CountingEvent extends Event
+	{
+		static long probes = 0L;
+		
+		CountingEvent(final long time) {
+			super(time);
+		}
+		
+		@Override
+		public long getNumericKey() {
+			++probes;
+			return time;
+		}
+		
+		@Override
+		public int compareToKey(final Long key) {
+			++probes;
+			return super.compareToKey(key);
+		}
+	}
+	
+	/**
+	 * Generates {@code count} strictly ascending, nearly uniformly spaced keys.
+	 */
+	static long[] keys(final int count, final long seed)
+	{
+		final Random rnd = new Random(seed);
+		final long[] keys = new long[count];
+		for (int i = 0; i < count; ++i)
+			keys[i] = (long) i * SPACING + rnd.nextInt(4);
+		return keys;
+	}
+	
+	/**
+	 * Picks {@code count} lookup keys from the newest {@code window} of {@code keys} (all present).
+	 */
+	static Long[] lookups(final long[] keys, final int window, final int count, final long seed)
+	{
+		final Random rnd = new Random(seed);
+		final Long[] lookups = new Long[count];
+		for (int i = 0; i < count; ++i)
+			lookups[i] = keys[keys.length - 1 - rnd.nextInt(window)];
+		return lookups;
+	}
+	
+	/**
+	 * The search {@link FixedSearchableFlowAscending#find(Object)} used before it got rewritten (two compares on the
+	 * newest element, clamped physical indices), kept as a baseline.
+	 * @param flow physical storage, element with sequence number s stored at {@code s & (flow.length - 1)}
+	 * @param index physical index of the newest element (once full), otherwise {@code flow.length - 1}
+	 */
+	static <U, T extends IFlowElement<U>> T legacyFind(final T[] flow, final int index, final int size, final U key)
+	{
+		if(size == 0)
+			return null;
+		final int CAP = flow.length, MASK = CAP - 1;
+		final int s = size - 1;
+		T t = flow[Math.min(index, s)];
+		if(t.compareToKey(key) == 0)
+			return t;
+		else if(t.compareToKey(key) < 0)
+			return null;
+		int i = index + CAP / 2;
+		for(int step = CAP / 4; step > 0; step = step / 2)
+		{
+			t = flow[Math.min(i & MASK, s)];
+			final int c = t.compareToKey(key);
+			if(c == 0)
+				return t;
+			else if(c > 0)
+				i -= step;
+			else
+				i += step;
+		}
+		t = flow[Math.min(i & MASK, s)];
+		if(t.compareToKey(key) == 0)
+			return t;
+		return null;
+	}
+}
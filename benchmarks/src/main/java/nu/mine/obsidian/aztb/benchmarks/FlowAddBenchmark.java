@@ -0,0 +1,101 @@
+package nu.mine.obsidian.aztb.benchmarks;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.concurrent.TimeUnit;
+
+import nu.mine.obsidian.aztb.collections.v1_0.ConcurrentFixedFlowLong;
+import nu.mine.obsidian.aztb.collections.v1_0.FixedFlow;
+import nu.mine.obsidian.aztb.collections.v1_0.FixedFlowLong;
+import nu.mine.obsidian.aztb.collections.v1_0.FixedStatisticalFlowLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of adding one element to the different (full, wrapping) flows.
+ * <p/>Run with {@code -prof gc}: only the boxed {@link FixedFlow} should allocate.
+ * @author AnorZaken
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlowAddBenchmark
+{
+	@Param({"128", "8192"})
+	public int capacity;
+	
+	private FixedFlow<Long> boxedFlow;
+	private FixedFlowLong longFlow;
+	private FixedStatisticalFlowLong statisticalFlow;
+	private ConcurrentFixedFlowLong concurrentFlow;
+	private long value = 0L;
+	
+	@Setup
+	public void setup()
+	{
+		boxedFlow = new FixedFlow<Long>(Long.class, capacity);
+		longFlow = new FixedFlowLong(capacity);
+		statisticalFlow = new FixedStatisticalFlowLong(capacity);
+		concurrentFlow = new ConcurrentFixedFlowLong(capacity);
+	}
+	
+	private long nextValue() { //pseudo-random tick-time-like values (so min/max deques do some work)
+		return 50000000L + ((value = value * 6364136223846793005L + 1442695040888963407L) >>> 44);
+	}
+	
+	@Benchmark
+	public void boxedFlow() {
+		boxedFlow.add(nextValue());
+	}
+	
+	@Benchmark
+	public void longFlow() {
+		longFlow.add(nextValue());
+	}
+	
+	@Benchmark
+	public void statisticalFlow() {
+		statisticalFlow.add(nextValue());
+	}
+	
+	@Benchmark
+	public long statisticalFlowAddAndQuery()
+	{
+		statisticalFlow.add(nextValue());
+		return statisticalFlow.getMax() + statisticalFlow.getPercentile(99d);
+	}
+	
+	@Benchmark
+	public void concurrentFlow() {
+		concurrentFlow.add(nextValue());
+	}
+}
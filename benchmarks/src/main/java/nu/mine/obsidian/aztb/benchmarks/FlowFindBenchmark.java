@@ -0,0 +1,118 @@
+package nu.mine.obsidian.aztb.benchmarks;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import nu.mine.obsidian.aztb.benchmarks.Events.Event;
+import nu.mine.obsidian.aztb.collections.v1_0.FixedSearchableFlowAscending;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup latency of {@link FixedSearchableFlowAscending} at different capacities.
+ * <p/>{@code window} is how far back (from the newest element) the looked up keys are spread:
+ * 64 for "recent" lookups, or the whole capacity for uniform lookups.
+ * Baselines are the legacy {@code find} and {@link Arrays#binarySearch(long[], long)} on a plain sorted array.
+ * @author AnorZaken
+ * @see FlowProbeCount
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlowFindBenchmark
+{
+	private static final int LOOKUPS = 1024; //power of 2
+	
+	@Param({"128", "1024", "8192", "65536"})
+	public int capacity;
+	
+	@Param({"64", "capacity"})
+	public String window;
+	
+	private FixedSearchableFlowAscending<Long, Event> flow;
+	private Event[] legacy; //same physical layout as flow
+	private int legacyIndex;
+	private long[] sorted;
+	private Long[] lookups;
+	private long[] numericLookups;
+	private int next = 0;
+	
+	@Setup
+	public void setup()
+	{
+		final long[] keys = Events.keys(capacity * 2 + capacity / 3, 1L); //wrapped around more than once
+		flow = new FixedSearchableFlowAscending<Long, Event>(Event.class, capacity);
+		legacy = new Event[capacity];
+		for (int i = 0; i < keys.length; ++i) {
+			final Event e = new Event(keys[i]);
+			flow.add(e);
+			legacy[legacyIndex = i & (capacity - 1)] = e;
+		}
+		sorted = Arrays.copyOfRange(keys, keys.length - capacity, keys.length);
+		
+		lookups = Events.lookups(keys, "capacity".equals(window) ? capacity : Integer.parseInt(window), LOOKUPS, 2L);
+		numericLookups = new long[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; ++i)
+			numericLookups[i] = lookups[i];
+	}
+	
+	private int nextLookup() {
+		return next = (next + 1) & (LOOKUPS - 1);
+	}
+	
+	@Benchmark
+	public Event legacyFind() {
+		return Events.legacyFind(legacy, legacyIndex, capacity, lookups[nextLookup()]);
+	}
+	
+	@Benchmark
+	public Event find() {
+		return flow.find(lookups[nextLookup()]);
+	}
+	
+	@Benchmark
+	public Event findFromNewest() {
+		return flow.findFromNewest(lookups[nextLookup()]);
+	}
+	
+	@Benchmark
+	public Event findInterpolated() {
+		return flow.findInterpolated(numericLookups[nextLookup()]);
+	}
+	
+	@Benchmark
+	public int arraysBinarySearch() {
+		return Arrays.binarySearch(sorted, numericLookups[nextLookup()]);
+	}
+}
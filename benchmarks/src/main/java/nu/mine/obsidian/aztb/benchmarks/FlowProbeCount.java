@@ -0,0 +1,78 @@
+package nu.mine.obsidian.aztb.benchmarks;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import nu.mine.obsidian.aztb.benchmarks.Events.CountingEvent;
+import nu.mine.obsidian.aztb.collections.v1_0.FixedSearchableFlowAscending;
+
+/**
+ * Prints the average number of probes (key compares / key reads) per lookup for each search strategy of
+ * {@link FixedSearchableFlowAscending}, using the same data as {@link FlowFindBenchmark}.
+ * <p/>Run with: {@code java -cp target/benchmarks.jar nu.mine.obsidian.aztb.benchmarks.FlowProbeCount}
+ * @author AnorZaken
+ */
+public final class FlowProbeCount
+{
+	private static final int LOOKUPS = 100000;
+	
+	private FlowProbeCount() {}
+	
+	public static void main(final String[] args)
+	{
+		System.out.printf("%9s %9s %12s %12s %16s %18s%n",
+				"capacity", "window", "legacyFind", "find", "findFromNewest", "findInterpolated");
+		for (final int capacity : new int[] { 128, 1024, 8192, 65536 })
+			for (final int window : new int[] { 64, capacity })
+				run(capacity, window);
+	}
+	
+	private static void run(final int capacity, final int window)
+	{
+		final long[] keys = Events.keys(capacity * 2 + capacity / 3, 1L);
+		final FixedSearchableFlowAscending<Long, CountingEvent> flow =
+				new FixedSearchableFlowAscending<Long, CountingEvent>(CountingEvent.class, capacity);
+		final CountingEvent[] legacy = new CountingEvent[capacity];
+		int legacyIndex = 0;
+		for (int i = 0; i < keys.length; ++i) {
+			final CountingEvent e = new CountingEvent(keys[i]);
+			flow.add(e);
+			legacy[legacyIndex = i & (capacity - 1)] = e;
+		}
+		final Long[] lookups = Events.lookups(keys, window, LOOKUPS, 2L);
+		
+		final double[] perLookup = new double[4];
+		for (int strategy = 0; strategy < 4; ++strategy) {
+			CountingEvent.probes = 0L;
+			for (final Long key : lookups) {
+				final Object found;
+				switch (strategy) {
+					case 0: found = Events.legacyFind(legacy, legacyIndex, capacity, key); break;
+					case 1: found = flow.find(key); break;
+					case 2: found = flow.findFromNewest(key); break;
+					default: found = flow.findInterpolated(key.longValue()); break;
+				}
+				if (found == null)
+					throw new IllegalStateException("key not found: " + key);
+			}
+			perLookup[strategy] = (double) CountingEvent.probes / LOOKUPS;
+		}
+		System.out.printf("%9d %9d %12.2f %12.2f %16.2f %18.2f%n",
+				capacity, window, perLookup[0], perLookup[1], perLookup[2], perLookup[3]);
+	}
+}
@@ -0,0 +1,162 @@
+package nu.mine.obsidian.aztb.benchmarks;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import nu.mine.obsidian.aztb.collections.v1_0.ArrayBlockQueue;
+import nu.mine.obsidian.aztb.collections.v1_0.ArrayBlockQueueLong;
+import nu.mine.obsidian.aztb.collections.v1_0.SpscArrayQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Add/poll throughput of the block queues against {@link ArrayDeque}, fastutil's {@link LongArrayFIFOQueue} and a
+ * plain {@code long[]} ring.
+ * <p/>Every invocation adds {@code batch} elements and then polls them all, so the score is in batches per
+ * microsecond. Run with {@code -prof gc} to compare allocation rates (boxing, block pooling).
+ * @author AnorZaken
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueueBenchmark
+{
+	@Param({"16", "1024", "65536"})
+	public int batch;
+	
+	private ArrayBlockQueueLong blockQueueLong;
+	private ArrayBlockQueue<Long> blockQueue;
+	private SpscArrayQueue<Long> spscQueue;
+	private ArrayDeque<Long> arrayDeque;
+	private LongArrayFIFOQueue fastutilQueue;
+	private long[] ring;
+	private long[] bulk;
+	
+	@Setup
+	public void setup()
+	{
+		blockQueueLong = new ArrayBlockQueueLong(256);
+		blockQueue = new ArrayBlockQueue<Long>(256);
+		spscQueue = new SpscArrayQueue<Long>(batch);
+		arrayDeque = new ArrayDeque<Long>();
+		fastutilQueue = new LongArrayFIFOQueue();
+		ring = new long[batch];
+		bulk = new long[batch];
+		for (int i = 0; i < batch; ++i)
+			bulk[i] = i;
+	}
+	
+	@Benchmark
+	public long blockQueueLong()
+	{
+		final ArrayBlockQueueLong q = blockQueueLong;
+		for (int i = 0; i < batch; ++i)
+			q.addLong(i);
+		long sum = 0L;
+		for (int i = 0; i < batch; ++i)
+			sum += q.pollLong();
+		return sum;
+	}
+	
+	@Benchmark
+	public long blockQueueLongBulk()
+	{
+		final long[] bulk = this.bulk;
+		blockQueueLong.addAll(bulk, 0, batch);
+		return blockQueueLong.poll(bulk, 0, batch);
+	}
+	
+	@Benchmark
+	public long blockQueueBoxed()
+	{
+		final ArrayBlockQueue<Long> q = blockQueue;
+		for (int i = 0; i < batch; ++i)
+			q.add(Long.valueOf(i));
+		long sum = 0L;
+		for (int i = 0; i < batch; ++i)
+			sum += q.poll();
+		return sum;
+	}
+	
+	@Benchmark
+	public long spscQueue()
+	{
+		final SpscArrayQueue<Long> q = spscQueue;
+		for (int i = 0; i < batch; ++i)
+			q.add(Long.valueOf(i));
+		long sum = 0L;
+		for (int i = 0; i < batch; ++i)
+			sum += q.poll();
+		return sum;
+	}
+	
+	@Benchmark
+	public long arrayDeque()
+	{
+		final ArrayDeque<Long> q = arrayDeque;
+		for (int i = 0; i < batch; ++i)
+			q.add(Long.valueOf(i));
+		long sum = 0L;
+		for (int i = 0; i < batch; ++i)
+			sum += q.poll();
+		return sum;
+	}
+	
+	@Benchmark
+	public long fastutilQueue()
+	{
+		final LongArrayFIFOQueue q = fastutilQueue;
+		for (int i = 0; i < batch; ++i)
+			q.enqueue(i);
+		long sum = 0L;
+		for (int i = 0; i < batch; ++i)
+			sum += q.dequeueLong();
+		return sum;
+	}
+	
+	@Benchmark
+	public long plainRing() //lower bound: no bounds checks, no growth
+	{
+		final long[] ring = this.ring;
+		final int mask = batch - 1;
+		for (int i = 0; i < batch; ++i)
+			ring[i & mask] = i;
+		long sum = 0L;
+		for (int i = 0; i < batch; ++i)
+			sum += ring[i & mask];
+		return sum;
+	}
+}
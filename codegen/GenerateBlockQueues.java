@@ -0,0 +1,151 @@
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ * 
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the ArrayBlockQueue family in {@code collections.v1_0} from {@code ArrayBlockQueue.template}.
+ * <p/>Usage (from the repository root):
+ * <br>&nbsp&nbsp&nbsp{@code javac -d codegen/bin codegen/GenerateBlockQueues.java}
+ * <br>&nbsp&nbsp&nbsp{@code java -cp codegen/bin GenerateBlockQueues}
+ * <p/>Template syntax:<ul>
+ *  <li>{@code #CLASS#}, {@code #GENERIC#}, {@code #TYPE#}, {@code #ELEM#}, {@code #BOX#}, {@code #SUF#} and
+ *      {@code #STORE#} are replaced with the values of the {@link Spec} being generated.</li>
+ *  <li>Lines between {@code //#if FLAG}, {@code //#else} and {@code //#endif} are kept or dropped depending on the
+ *      flag ({@code PRIMITIVE} or {@code OBJECT}). (No nesting.)</li>
+ * </ul>
+ * @author AnorZaken
+ */
+public final class GenerateBlockQueues
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String TEMPLATE = "codegen/ArrayBlockQueue.template";
+	private static final String TARGET_DIR = "src/nu/mine/obsidian/aztb/collections/v1_0";
+	
+	private static final class Spec
+	{
+		final String clazz, generic, type, elem, box, suffix, store;
+		final boolean primitive;
+		
+		Spec(String clazz, String generic, String type, String elem, String box, String suffix, String store,
+				boolean primitive)
+		{
+			this.clazz = clazz;
+			this.generic = generic;
+			this.type = type;
+			this.elem = elem;
+			this.box = box;
+			this.suffix = suffix;
+			this.store = store;
+			this.primitive = primitive;
+		}
+	}
+	
+	private static final Spec[] SPECS = {
+		new Spec("ArrayBlockQueueLong", "", "long", "long", "Long", "Long", "long", true),
+		new Spec("ArrayBlockQueueInt", "", "int", "int", "Integer", "Int", "int", true),
+		new Spec("ArrayBlockQueueDouble", "", "double", "double", "Double", "Double", "double", true),
+		new Spec("ArrayBlockQueue", "<E>", "Object", "E", "E", "", "Object", false),
+	};
+	
+	public static void main(String[] args) throws IOException
+	{
+		final List<String> template = readLines(new File(TEMPLATE));
+		for (Spec spec : SPECS)
+		{
+			final File target = new File(TARGET_DIR, spec.clazz + ".java");
+			write(target, generate(template, spec));
+			System.out.println("Generated " + target);
+		}
+	}
+	
+	private static String generate(final List<String> template, final Spec spec)
+	{
+		final StringBuilder sb = new StringBuilder();
+		Boolean keep = null; //null == outside of any //#if block
+		for (String line : template)
+		{
+			final String trimmed = line.trim();
+			if (trimmed.startsWith("//#if ")) {
+				final String flag = trimmed.substring(6).trim();
+				if (flag.equals("PRIMITIVE"))
+					keep = Boolean.valueOf(spec.primitive);
+				else if (flag.equals("OBJECT"))
+					keep = Boolean.valueOf(!spec.primitive);
+				else
+					throw new IllegalStateException("Unknown template flag: " + flag);
+				continue;
+			}
+			else if (trimmed.equals("//#else")) {
+				keep = Boolean.valueOf(!keep.booleanValue());
+				continue;
+			}
+			else if (trimmed.equals("//#endif")) {
+				keep = null;
+				continue;
+			}
+			else if (keep != null && !keep.booleanValue())
+				continue;
+			
+			sb.append(line
+					.replace("#CLASS#", spec.clazz)
+					.replace("#GENERIC#", spec.generic)
+					.replace("#TYPE#", spec.type)
+					.replace("#ELEM#", spec.elem)
+					.replace("#BOX#", spec.box)
+					.replace("#SUF#", spec.suffix)
+					.replace("#STORE#", spec.store))
+				.append('\n');
+		}
+		return sb.toString();
+	}
+	
+	private static List<String> readLines(final File file) throws IOException
+	{
+		final List<String> lines = new ArrayList<String>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null)
+				lines.add(line);
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+	
+	private static void write(final File file, final String content) throws IOException
+	{
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF8);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package nu.mine.obsidian.aztb.bukkit.loaders.v1_4;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import nu.mine.obsidian.aztb.tools.v1_0.MetricsRegistry;
+import nu.mine.obsidian.aztb.tools.v1_0.StripedCounter;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+/**
+ * Process-wide cache of parsed {@link YamlConfiguration} snapshots, shared by all plugins using the toolbox.
+ * <p/>Snapshots are keyed by canonical path (and path separator) and validated against the file modification time
+ * and size, so loading an unchanged file costs a single stat instead of a re-parse. The least recently used snapshots
+ * are evicted when there are more than {@link #getMaxEntries()} of them.
+ * <br>Files saved through {@link YAMLLoader} or {@link YAMLSaveQueue} are invalidated right away. (Other changes are
+ * detected by modification time and size - a same-sized edit within the timestamp resolution of the file system
+ * can be missed; {@link #invalidate(File)} such files explicitly.)
+ * <p/><b>Snapshots are shared and must be treated as read-only!</b> Use {@link #copy(YamlConfiguration)} to get a
+ * config that can be modified.
+ * <p/><i>Thread safe.</i>
+ * @author AnorZaken
+ * @version 1.0
+ * @see YAMLLoader#useCache(boolean)
+ */
+public final class YAMLCache
+{
+	/**
+	 * Default maximum number of cached snapshots.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 64;
+	
+	private static final class Snapshot
+	{
+		final YamlConfiguration yaml;
+		final long mtime;
+		final long size;
+		
+		Snapshot(final YamlConfiguration yaml, final long mtime, final long size)
+		{
+			this.yaml = yaml;
+			this.mtime = mtime;
+			this.size = size;
+		}
+	}
+	
+	private static int maxEntries = DEFAULT_MAX_ENTRIES;
+	
+	private static final LinkedHashMap<String, Snapshot> cache = new LinkedHashMap<String, Snapshot>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Snapshot> eldest) {
+			return size() > maxEntries;
+		}
+	};
+	
+	private static final StripedCounter metricHits = MetricsRegistry.getDefault().counter(
+			"aztb_yamlcache_hits_total", "YAMLCache loads served from an unchanged snapshot");
+	private static final StripedCounter metricMisses = MetricsRegistry.getDefault().counter(
+			"aztb_yamlcache_misses_total", "YAMLCache loads that had to parse the file");
+	
+	private YAMLCache() {}
+	
+	// ===================
+	
+	/**
+	 * Get the parsed snapshot of {@code file}, parsing it only if it isn't cached or has changed since it was cached.
+	 * <br><i>The returned config is shared - don't modify it!</i>
+	 * @param pathSeparator path separator to parse with, or {@code null} for the default
+	 * @throws FileNotFoundException if {@code file} doesn't exist
+	 * @throws IOException if reading fails
+	 * @throws InvalidConfigurationException if {@code file} isn't valid yaml
+	 * @throws IllegalArgumentException if {@code file} is {@code null}
+	 */
+	public static YamlConfiguration get(final File file, final Character pathSeparator)
+			throws IOException, InvalidConfigurationException
+	{
+		if (file == null)
+			throw new IllegalArgumentException("file can't be null");
+		final File canonical = file.getCanonicalFile();
+		final String key = pathSeparator == null ? canonical.getPath() : canonical.getPath() + '\0' + pathSeparator;
+		
+		final BasicFileAttributes attr;
+		try {
+			attr = Files.readAttributes(canonical.toPath(), BasicFileAttributes.class);
+		} catch (final NoSuchFileException ex) {
+			synchronized (cache) {
+				cache.remove(key);
+			}
+			throw new FileNotFoundException(file.getPath());
+		}
+		final long mtime = attr.lastModifiedTime().toMillis();
+		final long size = attr.size();
+		
+		synchronized (cache)
+		{
+			final Snapshot s = cache.get(key);
+			if (s != null && s.mtime == mtime && s.size == size)
+			{
+				metricHits.increment();
+				return s.yaml;
+			}
+		}
+		
+		//Parse outside the lock (stat was taken before parsing, so a concurrent change is detected on the next get)
+		metricMisses.increment();
+		final YamlConfiguration yaml = new YamlConfiguration();
+		if (pathSeparator != null)
+			yaml.options().pathSeparator(pathSeparator.charValue());
+		yaml.load(canonical);
+		synchronized (cache) {
+			cache.put(key, new Snapshot(yaml, mtime, size));
+		}
+		return yaml;
+	}
+	
+	/**
+	 * Removes all cached snapshots of {@code file}.
+	 */
+	public static void invalidate(final File file)
+	{
+		if (file == null)
+			return;
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch (final IOException ex) {
+			path = file.getAbsolutePath();
+		}
+		synchronized (cache)
+		{
+			cache.remove(path);
+			final String prefix = path + '\0';
+			for (final Iterator<String> it = cache.keySet().iterator(); it.hasNext(); )
+				if (it.next().startsWith(prefix))
+					it.remove();
+		}
+	}
+	
+	/**
+	 * Removes all cached snapshots.
+	 */
+	public static void clear()
+	{
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+	
+	/**
+	 * Number of cached snapshots.
+	 */
+	public static int size()
+	{
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+	
+	public static int getMaxEntries()
+	{
+		synchronized (cache) {
+			return maxEntries;
+		}
+	}
+	
+	/**
+	 * Set the maximum number of cached snapshots (evicting the least recently used ones if there are more).
+	 * @throws IllegalArgumentException if {@code maxEntries} is negative
+	 */
+	public static void setMaxEntries(final int maxEntries)
+	{
+		if (maxEntries < 0)
+			throw new IllegalArgumentException("Illegal maxEntries: " + maxEntries);
+		synchronized (cache)
+		{
+			YAMLCache.maxEntries = maxEntries;
+			for (final Iterator<String> it = cache.keySet().iterator(); cache.size() > maxEntries; )
+			{
+				it.next();
+				it.remove();
+			}
+		}
+	}
+	
+	// -----
+	
+	/**
+	 * Creates a modifiable copy of {@code yaml} (values, path separator and header). Nested lists and other mutable
+	 * values are shared with {@code yaml}.
+	 * @throws IllegalArgumentException if {@code yaml} is {@code null}
+	 */
+	public static YamlConfiguration copy(final YamlConfiguration yaml)
+	{
+		if (yaml == null)
+			throw new IllegalArgumentException("yaml can't be null");
+		final YamlConfiguration copy = new YamlConfiguration();
+		copy.options().pathSeparator(yaml.options().pathSeparator());
+		copy.options().header(yaml.options().header());
+		for (final String key : yaml.getKeys(true))
+		{
+			if (yaml.isConfigurationSection(key))
+				copy.createSection(key);
+			else
+				copy.set(key, yaml.get(key));
+		}
+		return copy;
+	}
+}
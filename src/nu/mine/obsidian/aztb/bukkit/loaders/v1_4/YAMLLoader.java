@@ -0,0 +1,457 @@
+package nu.mine.obsidian.aztb.bukkit.loaders.v1_4;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Tool-class that helps with yaml-config loading. <p/>
+ * Pros:<br>
+ * &nbsp 1. if loading fails you can check why (FileNotFound / InvalidConfiguration / Other)<br>
+ * &nbsp 2. it prints messages / logs on failure (FileNotFound message can be toggled off*)
+ * <p/>(*<i>Sometimes you want to load a file </i>if<i> it exists - then FileNotFound is not an error.</i>)
+ * 
+ * @author AnorZaken
+ * @version 1.4
+ * 
+ * @param <T> {@link JavaPlugin} using {@link YAMLLoader}
+ */
+public class YAMLLoader<T extends JavaPlugin>
+{
+	private static final String MESSAGE_ERROR_LOADING = "Error loading config, see server log for details.";
+	private static final String MESSAGE_ERROR_SAVING = "Error saving config, see server log for details.";
+	
+	protected final T plugin;
+	protected final String filename;
+	protected Character pathSeparator = null;
+	protected boolean useCache = false;
+	
+	/**
+	 * Creates a YAMLLoader for the specified plugin and config-file.
+	 * @param plugin {@link JavaPlugin} using YAMLLoader
+	 * @param filename of the yaml-config to load/save
+	 * @throws IllegalArgumentException if any parameter is {@code null} or {@code filename}
+	 *  is an empty String.
+	 */
+	public YAMLLoader(final T plugin, final String filename)
+	{
+		if (plugin == null)
+			throw new IllegalArgumentException("plugin can not be null");
+		if (filename == null)
+			throw new IllegalArgumentException("filename can not be null");
+		else if (filename.length() == 0)
+			throw new IllegalArgumentException("filename can not be an empty String");
+		this.plugin = plugin;
+		this.filename = filename;
+	}
+	
+	// ===============
+	
+	/**
+	 * Get a {@link File}-object for the file associated with this {@link YAMLLoader}. <p/>
+	 * (<i>Not cached!</i>)
+	 */
+	public File getFile() {
+		return new File(plugin.getDataFolder(), filename);
+	}
+	
+	/**
+	 * Get the name of the file associated with this {@link YAMLLoader}.
+	 */
+	public String getFileName() {
+		return filename;
+	}
+	
+	/**
+	 * Checks if the plugin associated with this {@link YAMLLoader} is enabled.
+	 */
+	public boolean isPluginEnabledAndHasFolder() {
+		return plugin.isEnabled() && plugin.getDataFolder() != null;
+	}
+	
+	/**
+	 * Get the yaml path separator char.
+	 */
+	public char pathSeparator() {
+		if (pathSeparator == null)
+			pathSeparator = new Character((new YamlConfiguration()).options().pathSeparator());
+		return pathSeparator.charValue();
+	}
+	
+	/**
+	 * Set the yaml path separator char.
+	 * @param pathSeparator char to use as path separator for yaml keys
+	 */
+	public void pathSeparator(final char pathSeparator) {
+		this.pathSeparator = new Character(pathSeparator);
+	}
+	
+	/**
+	 * Checks if loading returns shared snapshots from the {@link YAMLCache}.
+	 */
+	public boolean useCache() {
+		return useCache;
+	}
+	
+	/**
+	 * Set if loading should return shared snapshots from the {@link YAMLCache} (default is {@code false}).
+	 * <br>If this is {@code true} an unchanged file isn't parsed again, but the {@link YAMLResult#yaml} of loaded
+	 * results <b>must not be modified</b> (use {@link YAMLCache#copy(YamlConfiguration)}).
+	 */
+	public void useCache(final boolean useCache) {
+		this.useCache = useCache;
+	}
+	
+	
+	// ===========================
+	
+	
+	/**
+	 * Helper-class that handles all the messaging.
+	 * <br>(To actually use this use the {@link YAMLLoader#messageSender} instance.)
+	 * @author AnorZaken
+	 */
+	public class MessageSender
+	{
+		/**
+		 * (To actually use this use the {@link YAMLLoader#messageSender} instance.)
+		 */
+		private MessageSender() {}
+		
+		/**
+		 * Sends an error-loading message. (The message will be sent to the logger as well)
+		 * @param sender a {@link CommandSender} to receive the message - if this is <code>null</code> nothing gets sent!
+		 * @param errorLoadingMsg the message to send (if this is <code>null</code> a default message will be used)
+		 *  <br>&nbsp&nbsp&nbsp(<i>Default: "Error loading config, see server log for details."</i>)
+		 * @param ex an optional {@link Exception} associated with this error
+		 */
+		public void errorLoading(final CommandSender sender, final String errorLoadingMsg, final Exception ex)
+		{
+			if (sender != null)
+			{
+				if (errorLoadingMsg == null)
+					sender.sendMessage(MESSAGE_ERROR_LOADING);
+				else
+					sender.sendMessage(errorLoadingMsg);
+				final StringBuilder sb = new StringBuilder();
+				sb.append("Cannot load ").append(getFile());
+				if(ex != null)
+					sb.append(" : ").append(ex.getClass().toString());
+				plugin.getLogger().log(Level.WARNING, sb.toString());
+			}
+		}
+		
+		/**
+		 * Sends an error-file-exists message. (The message will be sent to the logger as well)
+		 * @param sender a {@link CommandSender} to receive the message - if this is <code>null</code> nothing gets sent!
+		 * @param errorFileExistsMsg the message to send (if this is <code>null</code> a default message will be used)
+		 *  <br>&nbsp&nbsp&nbsp(<i>Default: "Error saving config, see server log for details."</i>)
+		 */
+		public void errorFileExists(final CommandSender sender, final String errorFileExistsMsg)
+		{
+			if (sender != null)
+			{
+				if (errorFileExistsMsg == null)
+					sender.sendMessage(ChatColor.RED + "\"" + filename + "\" already exists. Please remove the old file first.");
+				else
+					sender.sendMessage(errorFileExistsMsg);
+				plugin.getLogger().log(Level.WARNING, 
+						(new StringBuilder()).append("Could not save config to ").append(getFile()).toString() + " : File already exists!");
+			}
+		}
+		
+		/**
+		 * Sends an error-saving message. (The message will be sent to the logger as well)
+		 * @param sender a {@link CommandSender} to receive the message - if this is <code>null</code> nothing gets sent!
+		 * @param errorSavingMsg the message to send (if this is <code>null</code> a default message will be used)
+		 * @param ex an optional {@link Exception} associated with this error
+		 */
+		public void errorSaving(final CommandSender sender, final String errorSavingMsg, final Exception ex)
+		{
+			if (sender != null)
+			{
+				if (errorSavingMsg == null)
+					sender.sendMessage(MESSAGE_ERROR_SAVING);
+				else
+					sender.sendMessage(errorSavingMsg);
+				final StringBuilder sb = new StringBuilder();
+				sb.append("Could not save config to ").append(getFile());
+				if(ex != null)
+					sb.append(" : ").append(ex.getClass().toString());
+				plugin.getLogger().log(Level.WARNING, sb.toString());
+			}
+		}
+	}
+	
+	public final MessageSender messageSender = new MessageSender();
+	
+	
+	// ===========================
+	
+	
+	/**
+	 * Class containing the result of an yaml-loading attempt.
+	 * @author AnorZaken
+	 * @see YAMLLoader#loadYaml(CommandSender, boolean, String)
+	 * @see YAMLLoader#loadYamlAsync(CommandSender, boolean, String, IYAMLCallback)
+	 */
+	public static class YAMLResult
+	{
+		private YAMLResult(){}
+		/**
+		 * The loaded yaml-configuration. Will be {@code null} if loading failed.
+		 */
+		public YamlConfiguration yaml = new YamlConfiguration();
+		/**
+		 * Will be {@code true} if attempting to load resulted in FileNotFound.
+		 */
+		public boolean isFileFound = true;
+		/**
+		 * Will be {@code false} if attempting to load resulted in InvalidConfiguration.
+		 */
+		public boolean isValidConfig = true;
+		
+		private Exception error = null; //to report (on the main thread for async loads)
+	}
+	
+	/**
+	 * Callback for {@link YAMLLoader#loadYamlAsync(CommandSender, boolean, String, IYAMLCallback)}.
+	 * @author AnorZaken
+	 */
+	public static interface IYAMLCallback
+	{
+		/**
+		 * Called on the main server thread once the yaml has been loaded (or failed to load).
+		 * <br>(Error messages have already been sent when this is called.)
+		 */
+		void onLoaded(YAMLResult result);
+	}
+	
+	// ------------
+	
+	/**
+	 * Loads the yaml-file associated with this {@link YAMLLoader} and returns the result in the form of an
+	 * {@link YAMLLoader.YAMLResult}-object.
+	 * @param sender {@link CommandSender} to send messages to (or {@code null} if silent operation is desired)
+	 * @param failIfFileNotFound if this is {@code true} FileNotFound will be treated like a failed loading
+	 * @param errorLoadingMsg message to send if loading fails (if this is {@code null} a default message will be used)
+	 *  <br>&nbsp&nbsp&nbsp(<i>Default: "Error loading config, see server log for details."</i>)
+	 * @return a {@link YAMLLoader.YAMLResult} object
+	 * @throws IllegalStateException if the plugin associated with this {@link YAMLLoader} isn't properly enabled
+	 */
+	public YAMLResult loadYaml(final CommandSender sender, boolean failIfFileNotFound, final String errorLoadingMsg)
+	{
+		if (!plugin.isEnabled() || plugin.getDataFolder() == null)
+			throw new IllegalStateException("plugin is not properly enabled");
+		
+		final YAMLResult yamlResult = readYaml(getFile(), pathSeparator, useCache, failIfFileNotFound);
+		if (yamlResult.error != null)
+			messageSender.errorLoading(sender, errorLoadingMsg, yamlResult.error);
+		return yamlResult;
+	}
+	
+	/**
+	 * Loads the yaml-file associated with this {@link YAMLLoader} on an async worker thread, so neither the disk I/O
+	 * nor the yaml parsing is done on the main server thread.
+	 * <br>Once loaded error messages are sent and {@code callback} is called, on the main thread and in one task.
+	 * <p/><i>Note: The returned {@link Future} completes when parsing is done, <b>before</b> {@code callback} is
+	 * called - so never wait for it on the main thread. If the plugin gets disabled while loading the callback is
+	 * skipped.</i>
+	 * @param sender {@link CommandSender} to send messages to (or {@code null} if silent operation is desired)
+	 * @param failIfFileNotFound if this is {@code true} FileNotFound will be treated like a failed loading
+	 * @param errorLoadingMsg message to send if loading fails (if this is {@code null} a default message will be used)
+	 * @param callback called with the result on the main thread (can be {@code null})
+	 * @return a {@link Future} of the {@link YAMLLoader.YAMLResult}
+	 * @throws IllegalStateException if the plugin associated with this {@link YAMLLoader} isn't properly enabled
+	 * @see #loadYaml(CommandSender, boolean, String)
+	 */
+	public Future<YAMLResult> loadYamlAsync(final CommandSender sender, final boolean failIfFileNotFound
+			, final String errorLoadingMsg, final IYAMLCallback callback)
+	{
+		if (!plugin.isEnabled() || plugin.getDataFolder() == null)
+			throw new IllegalStateException("plugin is not properly enabled");
+		
+		final File configFile = getFile();
+		final Character separator = pathSeparator;
+		final boolean cached = useCache;
+		final FutureTask<YAMLResult> task = new FutureTask<YAMLResult>(new Callable<YAMLResult>() {
+			@Override
+			public YAMLResult call() {
+				return readYaml(configFile, separator, cached, failIfFileNotFound);
+			}
+		}) {
+			@Override
+			protected void done()
+			{
+				if (isCancelled() || !plugin.isEnabled())
+					return;
+				plugin.getServer().getScheduler().runTask(plugin, new Runnable() {
+					@Override
+					public void run()
+					{
+						final YAMLResult yamlResult;
+						try {
+							yamlResult = get();
+						} catch (Exception ex) {
+							messageSender.errorLoading(sender, errorLoadingMsg, ex);
+							return;
+						}
+						if (yamlResult.error != null)
+							messageSender.errorLoading(sender, errorLoadingMsg, yamlResult.error);
+						if (callback != null)
+							callback.onLoaded(yamlResult);
+					}
+				});
+			}
+		};
+		plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task);
+		return task;
+	}
+	
+	/**
+	 * Loads {@code configFile} without sending any messages. <i>(Thread safe.)</i>
+	 */
+	private static YAMLResult readYaml(final File configFile, final Character pathSeparator, final boolean useCache
+			, final boolean failIfFileNotFound)
+	{
+		final YAMLResult yamlResult = new YAMLResult();
+		
+		if (pathSeparator != null)
+			yamlResult.yaml.options().pathSeparator(pathSeparator.charValue());
+		
+		try
+        {
+			if (useCache)
+				yamlResult.yaml = YAMLCache.get(configFile, pathSeparator);
+			else
+				yamlResult.yaml.load(configFile);
+        }
+		catch (FileNotFoundException ex)
+		{
+			if (failIfFileNotFound) {
+				yamlResult.error = ex;
+				yamlResult.yaml = null;
+			}
+			yamlResult.isFileFound = false;
+		}
+		catch (InvalidConfigurationException ex)
+        {
+			yamlResult.error = ex;
+			yamlResult.isValidConfig = false;
+			yamlResult.yaml = null;
+        }
+		catch (Exception ex)
+        {
+			yamlResult.error = ex;
+			yamlResult.yaml = null;
+        }
+		
+		return yamlResult;
+	}
+	
+	
+	/**
+	 * Saves a {@link YamlConfiguration} to the yaml-file associated with this {@link YAMLLoader}. 
+	 * <br>The file is replaced atomically, see {@link YAMLSaveQueue#writeAtomic(File, String)}.
+	 * @param sender {@link CommandSender} to send messages to (or {@code null} if silent operation is desired)
+	 * @param config
+	 * @param errorSavingMsg message to send if saving fails (if this is {@code null} a default message will be used)
+	 *  <br>&nbsp&nbsp&nbsp(<i>Default: "Error saving config, see server log for details."</i>)
+	 * @param allowOverwrite if this is <code>false</code> the saving will fail if the file already exists.
+	 * @param errorFileExistsMsg message to send if file already exists and overwriting not allowed (if this is
+	 *  {@code null} a default message will be used)
+	 *  <br>&nbsp&nbsp&nbsp(<i>Default: "[filename] already exists. Please remove the old file first."</i>)
+	 * @return <code>true</code> if the config was saved successfully, <code>false</code> otherwise
+	 * @throws IllegalStateException if the plugin associated with this {@link YAMLLoader} isn't properly enabled
+	 * @throws IllegalArgumentException if the {@link YamlConfiguration} is <code>null</code>
+	 */
+	public boolean saveYaml(final CommandSender sender, final YamlConfiguration config, final String errorSavingMsg
+			, final boolean allowOverwrite, final String errorFileExistsMsg)
+	{
+		if (config == null)
+			throw new IllegalArgumentException("config == null");
+		if (!plugin.isEnabled() || plugin.getDataFolder() == null)
+			throw new IllegalStateException("plugin is not properly enabled");
+		
+		final File configFile = getFile();
+		
+		try
+        {
+			if (configFile.exists() && !allowOverwrite) {
+				messageSender.errorFileExists(sender, errorFileExistsMsg);
+				return false;
+			}
+			YAMLSaveQueue.writeAtomic(configFile, config.saveToString()); //(also invalidates the YAMLCache)
+        }
+		catch(Exception ex)
+        {
+			messageSender.errorSaving(sender, errorSavingMsg, ex);
+			return false;
+        }
+		return true;
+	}
+	
+	/**
+	 * Queues {@code config} to be saved to the yaml-file associated with this {@link YAMLLoader} on the background
+	 * thread of {@code queue}. Several saves to the same file within the window of {@code queue} result in one write.
+	 * <p/><i>Note: Write failures are only logged (by {@code queue}), and {@code config} must not be modified after
+	 * this call.</i>
+	 * @param sender {@link CommandSender} to send messages to (or {@code null} if silent operation is desired)
+	 * @param config the config to save
+	 * @param allowOverwrite if this is <code>false</code> the saving will fail if the file already exists.
+	 * @param errorFileExistsMsg message to send if file already exists and overwriting not allowed (if this is
+	 *  {@code null} a default message will be used)
+	 * @param queue the {@link YAMLSaveQueue} to save with
+	 * @return <code>true</code> if the save was queued, <code>false</code> otherwise
+	 * @throws IllegalStateException if the plugin associated with this {@link YAMLLoader} isn't properly enabled, or
+	 *  {@code queue} has been closed
+	 * @throws IllegalArgumentException if {@code config} or {@code queue} is <code>null</code>
+	 * @see #saveYaml(CommandSender, YamlConfiguration, String, boolean, String)
+	 */
+	public boolean saveYamlAsync(final CommandSender sender, final YamlConfiguration config, final boolean allowOverwrite
+			, final String errorFileExistsMsg, final YAMLSaveQueue queue)
+	{
+		if (config == null)
+			throw new IllegalArgumentException("config == null");
+		if (queue == null)
+			throw new IllegalArgumentException("queue == null");
+		if (!plugin.isEnabled() || plugin.getDataFolder() == null)
+			throw new IllegalStateException("plugin is not properly enabled");
+		
+		final File configFile = getFile();
+		
+		if (!allowOverwrite && (configFile.exists() || queue.isPending(configFile))) {
+			messageSender.errorFileExists(sender, errorFileExistsMsg);
+			return false;
+		}
+		queue.save(configFile, config);
+		return true;
+	}
+}
@@ -0,0 +1,238 @@
+package nu.mine.obsidian.aztb.bukkit.loaders.v1_4;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+/**
+ * Write-behind saving of {@link YamlConfiguration YamlConfigurations} on a background (daemon) thread, so command
+ * handlers never block on disk writes.
+ * <p/>{@link #save(File, YamlConfiguration)} only queues the save: the file is written {@code delayMillis} later, and
+ * all saves to the same file within that window are coalesced into a single write (of the last queued config).
+ * Files are written to a temporary file first, synced to disk and then moved in place ({@code ATOMIC_MOVE} where
+ * supported), so a crash or power loss never leaves a half written (or empty) yaml.
+ * <p/>Call {@link #close()} in {@code onDisable()} - it writes everything still pending before returning.
+ * <p/><i>Note: The config is serialized on the background thread, so don't modify a config after queueing it (queue
+ * a new one instead).</i>
+ * @author AnorZaken
+ * @version 1.0
+ * @see YAMLLoader#saveYamlAsync(org.bukkit.command.CommandSender, YamlConfiguration, boolean, String, YAMLSaveQueue)
+ */
+public final class YAMLSaveQueue implements Closeable
+{
+	/**
+	 * Default coalescing window in milliseconds.
+	 */
+	public static final long DEFAULT_DELAY_MILLIS = 1000L;
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private static final ThreadFactory daemonFactory = new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r)
+		{
+			final Thread t = new Thread(r, "AZTB yaml save queue");
+			t.setDaemon(true);
+			return t;
+		}
+	};
+	
+	private final ConcurrentHashMap<File, YamlConfiguration> pending = new ConcurrentHashMap<File, YamlConfiguration>();
+	private final ScheduledThreadPoolExecutor executor;
+	private final long delayMillis;
+	private final Logger logger;
+	
+	// ===================
+	
+	/**
+	 * @param delayMillis coalescing window - how long a save waits for more saves to the same file
+	 * @param logger used to report failed writes, or {@code null} for silent operation
+	 * @throws IllegalArgumentException if {@code delayMillis} is negative
+	 */
+	public YAMLSaveQueue(final long delayMillis, final Logger logger)
+	{
+		if (delayMillis < 0L)
+			throw new IllegalArgumentException("Illegal delayMillis: " + delayMillis);
+		this.delayMillis = delayMillis;
+		this.logger = logger;
+		executor = new ScheduledThreadPoolExecutor(1, daemonFactory);
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+	
+	/**
+	 * Creates a {@link YAMLSaveQueue} with a {@link #DEFAULT_DELAY_MILLIS default} coalescing window.
+	 * @param logger used to report failed writes, or {@code null} for silent operation
+	 */
+	public YAMLSaveQueue(final Logger logger) {
+		this(DEFAULT_DELAY_MILLIS, logger);
+	}
+	
+	// ===================
+	
+	/**
+	 * Queues {@code config} to be written to {@code file}. If a save to {@code file} is already pending it is replaced
+	 * by this one. <i>Thread safe.</i>
+	 * @throws IllegalArgumentException if any argument is {@code null}
+	 * @throws IllegalStateException if this queue has been closed
+	 */
+	public void save(final File file, final YamlConfiguration config)
+	{
+		if (file == null)
+			throw new IllegalArgumentException("file can't be null");
+		if (config == null)
+			throw new IllegalArgumentException("config can't be null");
+		if (executor.isShutdown())
+			throw new IllegalStateException("save queue is closed");
+		final File key = file.getAbsoluteFile();
+		if (pending.put(key, config) == null) //else coalesced into the already scheduled write
+		{
+			executor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					writePending(key);
+				}
+			}, delayMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Checks if a save to {@code file} is pending.
+	 */
+	public boolean isPending(final File file) {
+		return file != null && pending.containsKey(file.getAbsoluteFile());
+	}
+	
+	/**
+	 * Writes all pending saves now, on the calling thread (blocking).
+	 */
+	public void flush()
+	{
+		for (final File file : new ArrayList<File>(pending.keySet()))
+			writePending(file);
+	}
+	
+	/**
+	 * Stops the background thread and writes all pending saves (blocking). Call this in {@code onDisable()}.
+	 */
+	@Override
+	public void close()
+	{
+		executor.shutdown();
+		try {
+			executor.awaitTermination(10L, TimeUnit.SECONDS); //(let a running write finish)
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+	}
+	
+	// ===================
+	
+	private synchronized void writePending(final File file) //(synchronized: one write at a time, in queue order)
+	{
+		final YamlConfiguration config = pending.remove(file);
+		if (config == null)
+			return; //already written (by flush)
+		try {
+			writeAtomic(file, config.saveToString());
+		} catch (final IOException ex) {
+			if (logger != null)
+				logger.log(Level.WARNING, "Could not save config to " + file, ex);
+		}
+	}
+	
+	/**
+	 * Writes {@code data} (UTF-8) to {@code file} via a uniquely named temporary file in the same folder, that is
+	 * synced to disk and then moved in place (atomically where the file system supports it). The temporary file is
+	 * deleted if anything fails. <i>Blocking - not for the main server thread.</i>
+	 * <br>(Also used by {@link YAMLLoader#saveYaml(org.bukkit.command.CommandSender, YamlConfiguration, String,
+	 * boolean, String) YAMLLoader.saveYaml(...)}.)
+	 * @throws IOException if writing fails
+	 */
+	public static void writeAtomic(final File file, final String data) throws IOException
+	{
+		final File target = file.getAbsoluteFile();
+		final File dir = target.getParentFile();
+		if (!dir.exists())
+			dir.mkdirs();
+		//unique name: several queues (plugins) may save the same file at the same time
+		final Path tmp = Files.createTempFile(dir.toPath(), target.getName() + ".", ".tmp");
+		boolean moved = false;
+		try {
+			copyPermissions(target, tmp);
+			try (FileOutputStream fos = new FileOutputStream(tmp.toFile())) {
+				final Writer out = new OutputStreamWriter(fos, UTF8);
+				out.write(data);
+				out.flush();
+				fos.getFD().sync(); //the data must be on disk before the rename is
+			}
+			try {
+				Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException ex) {
+				Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			moved = true;
+		} finally {
+			if (!moved) {
+				try {
+					Files.deleteIfExists(tmp);
+				} catch (final IOException ex) {
+					//(don't hide the original exception)
+				}
+			}
+		}
+		YAMLCache.invalidate(target);
+	}
+	
+	/**
+	 * Temporary files are created owner-only (on POSIX file systems): give {@code tmp} the permissions of the file it
+	 * replaces, or the usual rw-r--r-- for a new file.
+	 */
+	private static void copyPermissions(final File target, final Path tmp) throws IOException
+	{
+		try {
+			Files.setPosixFilePermissions(tmp, target.exists() ? Files.getPosixFilePermissions(target.toPath())
+					: EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE,
+							PosixFilePermission.GROUP_READ, PosixFilePermission.OTHERS_READ));
+		} catch (final UnsupportedOperationException ex) {
+			//not a POSIX file system - nothing to copy
+		}
+	}
+}
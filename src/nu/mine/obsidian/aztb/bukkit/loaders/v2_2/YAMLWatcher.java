@@ -0,0 +1,375 @@
+package nu.mine.obsidian.aztb.bukkit.loaders.v2_2;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import nu.mine.obsidian.aztb.bukkit.loaders.v1_4.YAMLCache;
+import nu.mine.obsidian.aztb.bukkit.loaders.v2_1.StringLoader;
+import nu.mine.obsidian.aztb.bukkit.loaders.v2_2.YAMLVariableLoader.YAMLVariable;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Hot reloading of yaml files with a {@link WatchService}, instead of polling them with a scheduled task.
+ * <p/>A background (daemon) thread waits for file system events in the folders of the watched files. Events are
+ * debounced per file (a file is reloaded once it has been quiet for {@code debounceMillis}), and only the changed
+ * files are re-read and parsed - still on the background thread. The listeners of all files reloaded together are
+ * then called in one task on the main server thread.
+ * <ul>
+ *  <li>{@link #watchStrings(String, StringLoader)}: calls {@link StringLoader.IStringToLoad#setStr(String)
+ *      setStr(...)} only for Strings that changed, see {@link StringLoader#applyChangedStrings(YamlConfiguration)}.</li>
+ *  <li>{@link #watchVariables(String, String, YAMLVariable...)}: calls the setters only of variables that changed,
+ *      see {@link YAMLVariableLoader#loadChanged(ConfigurationSection, YAMLVariable...)}.</li>
+ *  <li>{@link #watch(File, Character, IReloadListener)}: anything else.</li>
+ * </ul>
+ * Call {@link #close()} in {@code onDisable()}.
+ * <p/><i>Note: Hot reloading never writes to the watched files (missing entries are not added).</i>
+ * @author AnorZaken
+ * @version 1.0
+ */
+public final class YAMLWatcher implements Closeable
+{
+	/**
+	 * Callback for {@link YAMLWatcher#watch(File, Character, IReloadListener)}.
+	 * @author AnorZaken
+	 */
+	public static interface IReloadListener
+	{
+		/**
+		 * Called on the main server thread after {@code file} has changed and been reloaded.
+		 * @param yaml the reloaded config - a shared {@link YAMLCache} snapshot, <b>don't modify it!</b> That includes
+		 *  mutable objects read from it (e.g. {@link org.bukkit.inventory.ItemStack ItemStack},
+		 *  {@link org.bukkit.util.Vector Vector}, lists): copy them before keeping or changing them.
+		 */
+		void onReload(File file, YamlConfiguration yaml);
+	}
+	
+	/**
+	 * Default debounce time in milliseconds.
+	 */
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 500L;
+	
+	private static final class Registration
+	{
+		final Character pathSeparator;
+		final IReloadListener listener;
+		
+		Registration(final Character pathSeparator, final IReloadListener listener)
+		{
+			this.pathSeparator = pathSeparator;
+			this.listener = listener;
+		}
+	}
+	
+	// ===================
+	
+	private final Plugin plugin;
+	private final long debounceMillis;
+	private final WatchService watchService;
+	private final Thread thread;
+	private final ConcurrentHashMap<Path, CopyOnWriteArrayList<Registration>> watched = new ConcurrentHashMap<Path, CopyOnWriteArrayList<Registration>>();
+	private final HashMap<Path, WatchKey> dirs = new HashMap<Path, WatchKey>(); //guarded by itself
+	
+	// ===================
+	
+	/**
+	 * Creates a {@link YAMLWatcher} and starts its background thread.
+	 * @param plugin plugin to schedule the main thread tasks for (and log with)
+	 * @param debounceMillis how long a file must be quiet before it is reloaded
+	 * @throws IOException if the {@link WatchService} can't be created
+	 * @throws IllegalArgumentException if {@code plugin} is {@code null} or {@code debounceMillis} is negative
+	 */
+	public YAMLWatcher(final Plugin plugin, final long debounceMillis) throws IOException
+	{
+		if (plugin == null)
+			throw new IllegalArgumentException("plugin can't be null");
+		if (debounceMillis < 0L)
+			throw new IllegalArgumentException("Illegal debounceMillis: " + debounceMillis);
+		this.plugin = plugin;
+		this.debounceMillis = debounceMillis;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watchLoop();
+			}
+		}, "AZTB yaml watcher (" + plugin.getName() + ")");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Creates a {@link YAMLWatcher} with the {@link #DEFAULT_DEBOUNCE_MILLIS default} debounce time.
+	 * @throws IOException if the {@link WatchService} can't be created
+	 */
+	public YAMLWatcher(final Plugin plugin) throws IOException {
+		this(plugin, DEFAULT_DEBOUNCE_MILLIS);
+	}
+	
+	// ===================
+	
+	/**
+	 * Calls {@code listener} whenever {@code file} has changed.
+	 * @param pathSeparator path separator to parse the file with, or {@code null} for the default
+	 * @throws IOException if the folder of {@code file} can't be watched
+	 * @throws IllegalArgumentException if {@code file} or {@code listener} is {@code null}
+	 */
+	public void watch(final File file, final Character pathSeparator, final IReloadListener listener) throws IOException
+	{
+		if (file == null)
+			throw new IllegalArgumentException("file can't be null");
+		if (listener == null)
+			throw new IllegalArgumentException("listener can't be null");
+		final Path path = file.getAbsoluteFile().toPath().normalize();
+		final Path dir = path.getParent();
+		synchronized (dirs)
+		{
+			if (!dirs.containsKey(dir))
+				dirs.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.OVERFLOW));
+		}
+		CopyOnWriteArrayList<Registration> list = watched.get(path);
+		if (list == null)
+		{
+			final CopyOnWriteArrayList<Registration> prev = watched.putIfAbsent(path, list = new CopyOnWriteArrayList<Registration>());
+			if (prev != null)
+				list = prev;
+		}
+		list.add(new Registration(pathSeparator, listener));
+	}
+	
+	/**
+	 * Hot reloads the Strings of {@code loader} from {@code filename} (in the plugins data folder): only Strings
+	 * that changed are set.
+	 * @return the {@link IReloadListener} that was added (for {@link #unwatch(File, IReloadListener)})
+	 * @throws IOException if the folder can't be watched
+	 * @throws IllegalArgumentException if any argument is {@code null}
+	 * @see StringLoader#applyChangedStrings(YamlConfiguration)
+	 */
+	public IReloadListener watchStrings(final String filename, final StringLoader<?> loader) throws IOException
+	{
+		if (filename == null)
+			throw new IllegalArgumentException("filename can't be null");
+		if (loader == null)
+			throw new IllegalArgumentException("loader can't be null");
+		final IReloadListener listener = new IReloadListener() {
+			@Override
+			public void onReload(final File file, final YamlConfiguration yaml) {
+				loader.applyChangedStrings(yaml);
+			}
+		};
+		watch(new File(plugin.getDataFolder(), filename), Character.valueOf(loader.pathSeparator()), listener);
+		return listener;
+	}
+	
+	/**
+	 * Hot reloads {@code variables} from {@code filename} (in the plugins data folder): only the setters of variables
+	 * that changed are called.
+	 * @param sectionPath path of the {@link ConfigurationSection} containing the variables, or {@code null} for the root
+	 * @return the {@link IReloadListener} that was added (for {@link #unwatch(File, IReloadListener)})
+	 * @throws IOException if the folder can't be watched
+	 * @throws IllegalArgumentException if {@code filename} or {@code variables} is {@code null}
+	 * @see YAMLVariableLoader#loadChanged(ConfigurationSection, YAMLVariable...)
+	 */
+	public IReloadListener watchVariables(final String filename, final String sectionPath, final YAMLVariable... variables) throws IOException
+	{
+		if (filename == null)
+			throw new IllegalArgumentException("filename can't be null");
+		if (variables == null)
+			throw new IllegalArgumentException("variables can't be null");
+		final YAMLVariable[] vars = variables.clone();
+		final IReloadListener listener = new IReloadListener() {
+			@Override
+			public void onReload(final File file, final YamlConfiguration yaml)
+			{
+				final ConfigurationSection section = sectionPath == null ? yaml : yaml.getConfigurationSection(sectionPath);
+				if (section != null)
+					YAMLVariableLoader.loadChanged(section, vars);
+			}
+		};
+		watch(new File(plugin.getDataFolder(), filename), null, listener);
+		return listener;
+	}
+	
+	/**
+	 * Removes a listener added for {@code file}.
+	 * @return {@code true} if the listener was removed
+	 */
+	public boolean unwatch(final File file, final IReloadListener listener)
+	{
+		if (file == null || listener == null)
+			return false;
+		final CopyOnWriteArrayList<Registration> list = watched.get(file.getAbsoluteFile().toPath().normalize());
+		if (list != null)
+			for (final Registration r : list)
+				if (r.listener == listener)
+					return list.remove(r);
+		return false;
+	}
+	
+	/**
+	 * Stops watching (the background thread ends).
+	 */
+	@Override
+	public void close()
+	{
+		try {
+			watchService.close();
+		} catch (final IOException ex) {
+			plugin.getLogger().log(Level.WARNING, "Failed to close yaml watcher", ex);
+		}
+		thread.interrupt();
+	}
+	
+	// ===================
+	
+	private void watchLoop()
+	{
+		final HashMap<Path, Long> quietSince = new HashMap<Path, Long>(); //debounce: file -> time of last event
+		try
+		{
+			while (true)
+			{
+				final WatchKey key;
+				if (quietSince.isEmpty())
+					key = watchService.take();
+				else
+				{
+					long first = Long.MAX_VALUE;
+					for (final Long t : quietSince.values())
+						first = Math.min(first, t.longValue());
+					final long wait = first + debounceMillis - System.currentTimeMillis();
+					key = wait > 0L ? watchService.poll(wait, TimeUnit.MILLISECONDS) : watchService.poll();
+				}
+				final long now = System.currentTimeMillis();
+				if (key != null)
+				{
+					final Path dir = (Path) key.watchable();
+					for (final WatchEvent<?> event : key.pollEvents())
+					{
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+						{
+							for (final Path path : watched.keySet())
+								if (dir.equals(path.getParent()))
+									quietSince.put(path, Long.valueOf(now));
+						}
+						else
+						{
+							final Path path = dir.resolve((Path) event.context());
+							if (watched.containsKey(path))
+								quietSince.put(path, Long.valueOf(now));
+						}
+					}
+					key.reset();
+				}
+				final ArrayList<Path> due = new ArrayList<Path>();
+				for (final Iterator<Map.Entry<Path, Long>> it = quietSince.entrySet().iterator(); it.hasNext(); )
+				{
+					final Map.Entry<Path, Long> e = it.next();
+					if (e.getValue().longValue() + debounceMillis <= now)
+					{
+						due.add(e.getKey());
+						it.remove();
+					}
+				}
+				if (!due.isEmpty())
+					reload(due);
+			}
+		}
+		catch (final InterruptedException ex) {}
+		catch (final ClosedWatchServiceException ex) {}
+	}
+	
+	/**
+	 * Parses {@code files} (on the watcher thread) and calls their listeners in one main thread task.
+	 */
+	private void reload(final ArrayList<Path> files)
+	{
+		final ArrayList<Registration> regs = new ArrayList<Registration>();
+		final ArrayList<File> regFiles = new ArrayList<File>();
+		final ArrayList<YamlConfiguration> regYamls = new ArrayList<YamlConfiguration>();
+		for (final Path path : files)
+		{
+			final CopyOnWriteArrayList<Registration> list = watched.get(path);
+			if (list == null || list.isEmpty())
+				continue;
+			final File file = path.toFile();
+			YAMLCache.invalidate(file); //(the change could be within the timestamp resolution)
+			final HashMap<Character, YamlConfiguration> parsed = new HashMap<Character, YamlConfiguration>(2);
+			for (final Registration r : list)
+			{
+				YamlConfiguration yaml = parsed.get(r.pathSeparator);
+				if (yaml == null && !parsed.containsKey(r.pathSeparator))
+				{
+					try {
+						yaml = YAMLCache.get(file, r.pathSeparator);
+					} catch (final FileNotFoundException ex) {
+						//deleted - keep the current values
+					} catch (final Exception ex) {
+						plugin.getLogger().log(Level.WARNING, "Hot reload of " + file + " failed: " + ex);
+					}
+					parsed.put(r.pathSeparator, yaml);
+				}
+				if (yaml != null)
+				{
+					regs.add(r);
+					regFiles.add(file);
+					regYamls.add(yaml);
+				}
+			}
+		}
+		if (regs.isEmpty() || !plugin.isEnabled())
+			return;
+		plugin.getServer().getScheduler().runTask(plugin, new Runnable() {
+			@Override
+			public void run()
+			{
+				for (int i = 0; i < regs.size(); ++i)
+				{
+					try {
+						regs.get(i).listener.onReload(regFiles.get(i), regYamls.get(i));
+					} catch (final RuntimeException ex) {
+						plugin.getLogger().log(Level.SEVERE, "Hot reload listener of " + regFiles.get(i) + " failed", ex);
+					}
+				}
+			}
+		});
+	}
+}
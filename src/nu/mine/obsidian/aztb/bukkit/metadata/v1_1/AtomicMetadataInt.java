@@ -0,0 +1,249 @@
+package nu.mine.obsidian.aztb.bukkit.metadata.v1_1;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.metadata.Metadatable;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * A thread safe implementation of {@link MetadataValue} that stores the primitive type {@code int}.
+ * <p/>Like {@link BasicMetadataInt}, but all updates are atomic ({@link #incrementAndGet()},
+ * {@link #addAndGet(int)}, {@link #compareAndSet(int, int)}, ...) so async tasks can update the value
+ * directly, without hopping to the main thread or risking lost updates.
+ * <br><i>(Look it up (or create it) on the main thread, then hand the reference to the async task - the Bukkit
+ * metadata API itself is meant for the main thread.)</i>
+ * @author AnorZaken
+ * @version 1.1
+ * @see CounterMetadata
+ */
+public final class AtomicMetadataInt implements IKeyedMetadata
+{
+	private static final AtomicIntegerFieldUpdater<AtomicMetadataInt> updater
+			= AtomicIntegerFieldUpdater.newUpdater(AtomicMetadataInt.class, "mInt");
+	
+	private final WeakReference<Plugin> owningPlugin;
+	private final MetadataKey<Integer> key; //null unless created with a handle
+	private volatile int mInt;
+	
+	public AtomicMetadataInt(Plugin owningPlugin, int value)
+	{
+		if (owningPlugin == null)
+			throw new IllegalArgumentException("owningPlugin can't be null");
+		this.owningPlugin = new WeakReference<Plugin>(owningPlugin);
+		this.key = null;
+		mInt = value;
+	}
+	
+	/**
+	 * Creates an {@link AtomicMetadataInt} owned by the plugin of {@code key}.
+	 * <br>(Only metadata created this way can be found with {@link #getMetadataValue(Metadatable, MetadataKey)}.)
+	 * @throws IllegalArgumentException if {@code key} is {@code null} or its plugin has been unloaded
+	 */
+	public AtomicMetadataInt(MetadataKey<Integer> key, int value)
+	{
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		final Plugin owningPlugin = key.getPlugin();
+		if (owningPlugin == null)
+			throw new IllegalArgumentException("the plugin of key has been unloaded");
+		this.owningPlugin = new WeakReference<Plugin>(owningPlugin);
+		this.key = key;
+		mInt = value;
+	}
+	
+	
+	public int get() {
+		return mInt;
+	}
+	
+	public void set(int value) {
+		mInt = value;
+	}
+	
+	public int getAndSet(int value) {
+		return updater.getAndSet(this, value);
+	}
+	
+	/**
+	 * Atomically sets the value to {@code update} if the current value {@code == expect}.
+	 * @return {@code true} if successful
+	 */
+	public boolean compareAndSet(int expect, int update) {
+		return updater.compareAndSet(this, expect, update);
+	}
+	
+	public int incrementAndGet() {
+		return updater.incrementAndGet(this);
+	}
+	
+	public int decrementAndGet() {
+		return updater.decrementAndGet(this);
+	}
+	
+	public int addAndGet(int delta) {
+		return updater.addAndGet(this, delta);
+	}
+	
+	public int getAndAdd(int delta) {
+		return updater.getAndAdd(this, delta);
+	}
+	
+	// -----
+	
+	@Override
+	public Plugin getOwningPlugin() {
+		return owningPlugin.get();
+	}
+	
+	@Override
+	public MetadataKey<Integer> getKey() {
+		return key;
+	}
+	
+	@Override
+	public void invalidate()
+	{}
+	
+	// -----
+	
+	@Override
+	public int asInt() {
+		return mInt;
+	}
+	
+	@Override
+	public long asLong() {
+		return mInt;
+	}
+	
+	@Override
+	public boolean asBoolean() {
+		return mInt != 0;
+	}
+	
+	@Override
+	public double asDouble() {
+		return mInt;
+	}
+	
+	@Override
+	public float asFloat() {
+		return mInt;
+	}
+	
+	@Override
+	public Object value() {
+		return Integer.valueOf(mInt);
+	}
+	
+	@Override
+	public String asString() {
+		return Integer.toString(mInt);
+	}
+	
+	// -----
+	
+	/**
+	 * Clamps to {@code Byte.MIN_VALUE : Byte.MAX_VALUE}.
+	 */
+	@Override
+	public byte asByte() {
+		final int v = mInt;
+		return v <= Byte.MAX_VALUE ? v >= Byte.MIN_VALUE ? (byte)v : Byte.MIN_VALUE : Byte.MAX_VALUE;
+	}
+	
+	/**
+	 * Clamps to {@code Short.MIN_VALUE : Short.MAX_VALUE}.
+	 */
+	@Override
+	public short asShort() {
+		final int v = mInt;
+		return v <= Short.MAX_VALUE ? v >= Short.MIN_VALUE ? (short)v : Short.MIN_VALUE : Short.MAX_VALUE;
+	}
+	
+	// -----
+	
+	/**
+	 * Fetches an {@link AtomicMetadataInt} from {@link Metadatable} with the specified {@link String metaKey} (and
+	 * optionally owned by {@link Plugin}).
+	 * @param metadatable The {@link Metadatable} holding metadata.
+	 * @param metaKey The key the data was stored with.
+	 * @param plugin If {@code plugin} is non-<code>null</code> will narrow down the search to metadata created by that {@link Plugin}.
+	 * @return An {@link AtomicMetadataInt} or <code>null</code> if none with the specified {@code metaKey} and
+	 *  {@link Plugin} was found. If {@code plugin} is <code>null</code> and {@code metadatable} has multiple
+	 *  {@link AtomicMetadataInt} stored the method will return the first one it finds.
+	 */
+	public static AtomicMetadataInt getMetadataValue(final Metadatable metadatable, final String metaKey, final Plugin plugin)
+	{
+		if(metadatable == null || metaKey == null)
+			return null;
+		
+		final List<MetadataValue> dlist = metadatable.getMetadata(metaKey);
+		for (int i = 0; i < dlist.size(); ++i)
+		{
+			final MetadataValue mv = dlist.get(i);
+			if ((plugin == null || mv.getOwningPlugin() == plugin) && mv instanceof AtomicMetadataInt)
+				return (AtomicMetadataInt) mv;
+		}
+		return null;
+	}
+	
+	/**
+	 * Fetches the {@link AtomicMetadataInt} stored on {@link Metadatable} with the handle {@code key}.
+	 * <br><i>Note: Only finds metadata created with {@code key} (see {@link #AtomicMetadataInt(MetadataKey, int)}).</i>
+	 * @return An {@link AtomicMetadataInt} or <code>null</code> if none was found (or any argument is <code>null</code>).
+	 * @see #getOrCreate(Metadatable, MetadataKey)
+	 */
+	public static AtomicMetadataInt getMetadataValue(final Metadatable metadatable, final MetadataKey<Integer> key)
+	{
+		if (metadatable == null || key == null)
+			return null;
+		final List<MetadataValue> dlist = metadatable.getMetadata(key.getName());
+		for (int i = 0; i < dlist.size(); ++i)
+		{
+			final MetadataValue mv = dlist.get(i);
+			if (mv instanceof AtomicMetadataInt && ((AtomicMetadataInt) mv).key == key)
+				return (AtomicMetadataInt) mv;
+		}
+		return null;
+	}
+	
+	/**
+	 * Fetches the {@link AtomicMetadataInt} stored on {@link Metadatable} with the handle {@code key}, creating
+	 * (with value 0) and attaching one if needed. <i>(Main thread only!)</i>
+	 * @throws IllegalArgumentException if {@code metadatable} or {@code key} is {@code null}, or the plugin of
+	 *  {@code key} has been unloaded
+	 */
+	public static AtomicMetadataInt getOrCreate(final Metadatable metadatable, final MetadataKey<Integer> key)
+	{
+		if (metadatable == null)
+			throw new IllegalArgumentException("metadatable can't be null");
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		AtomicMetadataInt meta = getMetadataValue(metadatable, key);
+		if (meta == null)
+			metadatable.setMetadata(key.getName(), meta = new AtomicMetadataInt(key, 0));
+		return meta;
+	}
+}
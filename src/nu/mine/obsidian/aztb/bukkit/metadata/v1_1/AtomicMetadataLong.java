@@ -0,0 +1,253 @@
+package nu.mine.obsidian.aztb.bukkit.metadata.v1_1;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.metadata.Metadatable;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * A thread safe implementation of {@link MetadataValue} that stores the primitive type {@code long}.
+ * <p/>Like {@link BasicMetadataLong}, but all updates are atomic ({@link #incrementAndGet()},
+ * {@link #addAndGet(long)}, {@link #compareAndSet(long, long)}, ...) so async tasks can update the value
+ * directly, without hopping to the main thread or risking lost updates.
+ * <br><i>(Look it up (or create it) on the main thread, then hand the reference to the async task - the Bukkit
+ * metadata API itself is meant for the main thread.)</i>
+ * @author AnorZaken
+ * @version 1.1
+ * @see CounterMetadata
+ */
+public final class AtomicMetadataLong implements IKeyedMetadata
+{
+	private static final AtomicLongFieldUpdater<AtomicMetadataLong> updater
+			= AtomicLongFieldUpdater.newUpdater(AtomicMetadataLong.class, "mLong");
+	
+	private final WeakReference<Plugin> owningPlugin;
+	private final MetadataKey<Long> key; //null unless created with a handle
+	private volatile long mLong;
+	
+	public AtomicMetadataLong(Plugin owningPlugin, long value)
+	{
+		if (owningPlugin == null)
+			throw new IllegalArgumentException("owningPlugin can't be null");
+		this.owningPlugin = new WeakReference<Plugin>(owningPlugin);
+		this.key = null;
+		mLong = value;
+	}
+	
+	/**
+	 * Creates an {@link AtomicMetadataLong} owned by the plugin of {@code key}.
+	 * <br>(Only metadata created this way can be found with {@link #getMetadataValue(Metadatable, MetadataKey)}.)
+	 * @throws IllegalArgumentException if {@code key} is {@code null} or its plugin has been unloaded
+	 */
+	public AtomicMetadataLong(MetadataKey<Long> key, long value)
+	{
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		final Plugin owningPlugin = key.getPlugin();
+		if (owningPlugin == null)
+			throw new IllegalArgumentException("the plugin of key has been unloaded");
+		this.owningPlugin = new WeakReference<Plugin>(owningPlugin);
+		this.key = key;
+		mLong = value;
+	}
+	
+	
+	public long get() {
+		return mLong;
+	}
+	
+	public void set(long value) {
+		mLong = value;
+	}
+	
+	public long getAndSet(long value) {
+		return updater.getAndSet(this, value);
+	}
+	
+	/**
+	 * Atomically sets the value to {@code update} if the current value {@code == expect}.
+	 * @return {@code true} if successful
+	 */
+	public boolean compareAndSet(long expect, long update) {
+		return updater.compareAndSet(this, expect, update);
+	}
+	
+	public long incrementAndGet() {
+		return updater.incrementAndGet(this);
+	}
+	
+	public long decrementAndGet() {
+		return updater.decrementAndGet(this);
+	}
+	
+	public long addAndGet(long delta) {
+		return updater.addAndGet(this, delta);
+	}
+	
+	public long getAndAdd(long delta) {
+		return updater.getAndAdd(this, delta);
+	}
+	
+	// -----
+	
+	@Override
+	public Plugin getOwningPlugin() {
+		return owningPlugin.get();
+	}
+	
+	@Override
+	public MetadataKey<Long> getKey() {
+		return key;
+	}
+	
+	@Override
+	public void invalidate()
+	{}
+	
+	// -----
+	
+	@Override
+	public long asLong() {
+		return mLong;
+	}
+	
+	@Override
+	public boolean asBoolean() {
+		return mLong != 0L;
+	}
+	
+	@Override
+	public double asDouble() {
+		return mLong;
+	}
+	
+	@Override
+	public float asFloat() {
+		return mLong;
+	}
+	
+	@Override
+	public Object value() {
+		return Long.valueOf(mLong);
+	}
+	
+	@Override
+	public String asString() {
+		return Long.toString(mLong);
+	}
+	
+	// -----
+	
+	/**
+	 * Clamps to {@code Byte.MIN_VALUE : Byte.MAX_VALUE}.
+	 */
+	@Override
+	public byte asByte() {
+		final long v = mLong;
+		return v <= Byte.MAX_VALUE ? v >= Byte.MIN_VALUE ? (byte)v : Byte.MIN_VALUE : Byte.MAX_VALUE;
+	}
+	
+	/**
+	 * Clamps to {@code Short.MIN_VALUE : Short.MAX_VALUE}.
+	 */
+	@Override
+	public short asShort() {
+		final long v = mLong;
+		return v <= Short.MAX_VALUE ? v >= Short.MIN_VALUE ? (short)v : Short.MIN_VALUE : Short.MAX_VALUE;
+	}
+	
+	/**
+	 * Clamps to {@code Integer.MIN_VALUE : Integer.MAX_VALUE}.
+	 */
+	@Override
+	public int asInt() {
+		final long v = mLong;
+		return v <= Integer.MAX_VALUE ? v >= Integer.MIN_VALUE ? (int)v : Integer.MIN_VALUE : Integer.MAX_VALUE;
+	}
+	
+	// -----
+	
+	/**
+	 * Fetches an {@link AtomicMetadataLong} from {@link Metadatable} with the specified {@link String metaKey} (and
+	 * optionally owned by {@link Plugin}).
+	 * @param metadatable The {@link Metadatable} holding metadata.
+	 * @param metaKey The key the data was stored with.
+	 * @param plugin If {@code plugin} is non-<code>null</code> will narrow down the search to metadata created by that {@link Plugin}.
+	 * @return An {@link AtomicMetadataLong} or <code>null</code> if none with the specified {@code metaKey} and
+	 *  {@link Plugin} was found. If {@code plugin} is <code>null</code> and {@code metadatable} has multiple
+	 *  {@link AtomicMetadataLong} stored the method will return the first one it finds.
+	 */
+	public static AtomicMetadataLong getMetadataValue(final Metadatable metadatable, final String metaKey, final Plugin plugin)
+	{
+		if(metadatable == null || metaKey == null)
+			return null;
+		
+		final List<MetadataValue> dlist = metadatable.getMetadata(metaKey);
+		for (int i = 0; i < dlist.size(); ++i)
+		{
+			final MetadataValue mv = dlist.get(i);
+			if ((plugin == null || mv.getOwningPlugin() == plugin) && mv instanceof AtomicMetadataLong)
+				return (AtomicMetadataLong) mv;
+		}
+		return null;
+	}
+	
+	/**
+	 * Fetches the {@link AtomicMetadataLong} stored on {@link Metadatable} with the handle {@code key}.
+	 * <br><i>Note: Only finds metadata created with {@code key} (see {@link #AtomicMetadataLong(MetadataKey, long)}).</i>
+	 * @return An {@link AtomicMetadataLong} or <code>null</code> if none was found (or any argument is <code>null</code>).
+	 * @see #getOrCreate(Metadatable, MetadataKey)
+	 */
+	public static AtomicMetadataLong getMetadataValue(final Metadatable metadatable, final MetadataKey<Long> key)
+	{
+		if (metadatable == null || key == null)
+			return null;
+		final List<MetadataValue> dlist = metadatable.getMetadata(key.getName());
+		for (int i = 0; i < dlist.size(); ++i)
+		{
+			final MetadataValue mv = dlist.get(i);
+			if (mv instanceof AtomicMetadataLong && ((AtomicMetadataLong) mv).key == key)
+				return (AtomicMetadataLong) mv;
+		}
+		return null;
+	}
+	
+	/**
+	 * Fetches the {@link AtomicMetadataLong} stored on {@link Metadatable} with the handle {@code key}, creating
+	 * (with value 0) and attaching one if needed. <i>(Main thread only!)</i>
+	 * @throws IllegalArgumentException if {@code metadatable} or {@code key} is {@code null}, or the plugin of
+	 *  {@code key} has been unloaded
+	 */
+	public static AtomicMetadataLong getOrCreate(final Metadatable metadatable, final MetadataKey<Long> key)
+	{
+		if (metadatable == null)
+			throw new IllegalArgumentException("metadatable can't be null");
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		AtomicMetadataLong meta = getMetadataValue(metadatable, key);
+		if (meta == null)
+			metadatable.setMetadata(key.getName(), meta = new AtomicMetadataLong(key, 0L));
+		return meta;
+	}
+}
@@ -0,0 +1,227 @@
+package nu.mine.obsidian.aztb.bukkit.metadata.v1_1;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import nu.mine.obsidian.aztb.tools.v1_0.StripedCounter;
+
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.metadata.Metadatable;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * A {@link MetadataValue} counter backed by a {@link StripedCounter}, for statistics that are updated very often
+ * from several threads (e.g. async packet or event listeners) but read rarely.
+ * <p/>Updates ({@link #increment()}, {@link #add(long)}) don't contend with each other, unlike with
+ * {@link AtomicMetadataLong}. Reading ({@link #sum()}, and all {@link MetadataValue} methods) adds up all stripes.
+ * <br><i>Note: There is no compare-and-set - use {@link AtomicMetadataLong} if you need one.</i>
+ * @author AnorZaken
+ * @version 1.1
+ * @see AtomicMetadataLong
+ */
+public final class CounterMetadata implements IKeyedMetadata
+{
+	/**
+	 * Stripes used by the constructors that don't take a stripe count. (Kept low since there is typically one counter
+	 * per entity - every stripe takes a cache line.)
+	 */
+	public static final int DEFAULT_STRIPES = 4;
+	
+	private final WeakReference<Plugin> owningPlugin;
+	private final MetadataKey<Long> key; //null unless created with a handle
+	private final StripedCounter counter;
+	
+	public CounterMetadata(Plugin owningPlugin) {
+		this(owningPlugin, DEFAULT_STRIPES);
+	}
+	
+	/**
+	 * @param stripes number of stripes (rounded up to nearest power of 2)
+	 * @see StripedCounter#StripedCounter(int)
+	 */
+	public CounterMetadata(Plugin owningPlugin, int stripes)
+	{
+		if (owningPlugin == null)
+			throw new IllegalArgumentException("owningPlugin can't be null");
+		this.owningPlugin = new WeakReference<Plugin>(owningPlugin);
+		this.key = null;
+		this.counter = new StripedCounter(stripes);
+	}
+	
+	/**
+	 * Creates a {@link CounterMetadata} owned by the plugin of {@code key}.
+	 * <br>(Only metadata created this way can be found with {@link #getMetadataValue(Metadatable, MetadataKey)}.)
+	 * @param stripes number of stripes (rounded up to nearest power of 2)
+	 * @throws IllegalArgumentException if {@code key} is {@code null} or its plugin has been unloaded
+	 */
+	public CounterMetadata(MetadataKey<Long> key, int stripes)
+	{
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		final Plugin owningPlugin = key.getPlugin();
+		if (owningPlugin == null)
+			throw new IllegalArgumentException("the plugin of key has been unloaded");
+		this.owningPlugin = new WeakReference<Plugin>(owningPlugin);
+		this.key = key;
+		this.counter = new StripedCounter(stripes);
+	}
+	
+	
+	public void increment() {
+		counter.increment();
+	}
+	
+	public void add(long x) {
+		counter.add(x);
+	}
+	
+	/**
+	 * The current count. <i>O(stripes)</i>
+	 * @see StripedCounter#sum()
+	 */
+	public long sum() {
+		return counter.sum();
+	}
+	
+	/**
+	 * Resets the count to 0. <i>(Not atomic - concurrent updates may be lost.)</i>
+	 */
+	public void reset() {
+		counter.reset();
+	}
+	
+	// -----
+	
+	@Override
+	public Plugin getOwningPlugin() {
+		return owningPlugin.get();
+	}
+	
+	@Override
+	public MetadataKey<Long> getKey() {
+		return key;
+	}
+	
+	@Override
+	public void invalidate()
+	{}
+	
+	// -----
+	
+	@Override
+	public long asLong() {
+		return counter.sum();
+	}
+	
+	@Override
+	public boolean asBoolean() {
+		return counter.sum() != 0L;
+	}
+	
+	@Override
+	public double asDouble() {
+		return counter.sum();
+	}
+	
+	@Override
+	public float asFloat() {
+		return counter.sum();
+	}
+	
+	@Override
+	public Object value() {
+		return Long.valueOf(counter.sum());
+	}
+	
+	@Override
+	public String asString() {
+		return Long.toString(counter.sum());
+	}
+	
+	// -----
+	
+	/**
+	 * Clamps to {@code Byte.MIN_VALUE : Byte.MAX_VALUE}.
+	 */
+	@Override
+	public byte asByte() {
+		final long v = counter.sum();
+		return v <= Byte.MAX_VALUE ? v >= Byte.MIN_VALUE ? (byte)v : Byte.MIN_VALUE : Byte.MAX_VALUE;
+	}
+	
+	/**
+	 * Clamps to {@code Short.MIN_VALUE : Short.MAX_VALUE}.
+	 */
+	@Override
+	public short asShort() {
+		final long v = counter.sum();
+		return v <= Short.MAX_VALUE ? v >= Short.MIN_VALUE ? (short)v : Short.MIN_VALUE : Short.MAX_VALUE;
+	}
+	
+	/**
+	 * Clamps to {@code Integer.MIN_VALUE : Integer.MAX_VALUE}.
+	 */
+	@Override
+	public int asInt() {
+		final long v = counter.sum();
+		return v <= Integer.MAX_VALUE ? v >= Integer.MIN_VALUE ? (int)v : Integer.MIN_VALUE : Integer.MAX_VALUE;
+	}
+	
+	// -----
+	
+	/**
+	 * Fetches the {@link CounterMetadata} stored on {@link Metadatable} with the handle {@code key}.
+	 * <br><i>Note: Only finds metadata created with {@code key} (see {@link #CounterMetadata(MetadataKey, int)}).</i>
+	 * @return A {@link CounterMetadata} or <code>null</code> if none was found (or any argument is <code>null</code>).
+	 * @see #getOrCreate(Metadatable, MetadataKey)
+	 */
+	public static CounterMetadata getMetadataValue(final Metadatable metadatable, final MetadataKey<Long> key)
+	{
+		if (metadatable == null || key == null)
+			return null;
+		final List<MetadataValue> dlist = metadatable.getMetadata(key.getName());
+		for (int i = 0; i < dlist.size(); ++i)
+		{
+			final MetadataValue mv = dlist.get(i);
+			if (mv instanceof CounterMetadata && ((CounterMetadata) mv).key == key)
+				return (CounterMetadata) mv;
+		}
+		return null;
+	}
+	
+	/**
+	 * Fetches the {@link CounterMetadata} stored on {@link Metadatable} with the handle {@code key}, creating (with
+	 * {@link #DEFAULT_STRIPES}) and attaching one if needed. <i>(Main thread only!)</i>
+	 * @throws IllegalArgumentException if {@code metadatable} or {@code key} is {@code null}, or the plugin of
+	 *  {@code key} has been unloaded
+	 */
+	public static CounterMetadata getOrCreate(final Metadatable metadatable, final MetadataKey<Long> key)
+	{
+		if (metadatable == null)
+			throw new IllegalArgumentException("metadatable can't be null");
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		CounterMetadata meta = getMetadataValue(metadatable, key);
+		if (meta == null)
+			metadatable.setMetadata(key.getName(), meta = new CounterMetadata(key, DEFAULT_STRIPES));
+		return meta;
+	}
+}
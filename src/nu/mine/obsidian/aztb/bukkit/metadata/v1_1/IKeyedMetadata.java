@@ -0,0 +1,35 @@
+package nu.mine.obsidian.aztb.bukkit.metadata.v1_1;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import org.bukkit.metadata.MetadataValue;
+
+/**
+ * A {@link MetadataValue} that can be created with a {@link MetadataKey} handle.
+ * @author AnorZaken
+ * @version 1.1
+ * @see MetadataBatch
+ */
+public interface IKeyedMetadata extends MetadataValue
+{
+	/**
+	 * The handle this metadata was created with, or {@code null} if it was created with a plain plugin.
+	 */
+	public MetadataKey<?> getKey();
+}
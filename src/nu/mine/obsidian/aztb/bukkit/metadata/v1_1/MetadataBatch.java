@@ -0,0 +1,252 @@
+package nu.mine.obsidian.aztb.bukkit.metadata.v1_1;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.metadata.Metadatable;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Bulk metadata operations over many {@link Metadatable Metadatables} (e.g. all entities of a chunk or world).
+ * <p/>All operations take a {@link MetadataKey} handle, and stored values are matched by reference
+ * ({@link IKeyedMetadata#getKey()}). The {@code getAll} methods reuse a caller supplied buffer when it's big enough, and
+ * only allocate a new list / array for the results otherwise.
+ * <p/><i>Note: This is a convenience, not a per-target saving: every target still costs one
+ * {@link Metadatable#getMetadata(String)} (Bukkit builds and hashes its internal key and copies the value list).
+ * Only {@link MetadataStore} columns avoid per-target Bukkit lookups - use their column methods for values that are
+ * read in bulk. Like the single-value methods these only find metadata created with the handle.</i>
+ * @author AnorZaken
+ * @version 1.1
+ * @see MetadataKey
+ */
+public final class MetadataBatch
+{
+	/**
+	 * Callback for {@link MetadataBatch#forEach(Collection, MetadataKey, IVisitor)}.
+	 * @author AnorZaken
+	 * @param <T> the value type of the key
+	 */
+	public static interface IVisitor<T>
+	{
+		/**
+		 * Called for each target that has a value stored under the key.
+		 */
+		public void visit(Metadatable target, IKeyedMetadata meta, T value);
+	}
+	
+	private MetadataBatch() {}
+	
+	// -----
+	
+	/**
+	 * Find the metadata stored on {@code target} with the handle {@code key}. <i>O(values under the key name)</i>
+	 * @return the metadata or {@code null} if there is none
+	 */
+	public static IKeyedMetadata find(final Metadatable target, final MetadataKey<?> key)
+	{
+		final List<MetadataValue> dlist = target.getMetadata(key.getName());
+		for (int i = 0; i < dlist.size(); ++i)
+		{
+			final MetadataValue mv = dlist.get(i);
+			if (mv instanceof IKeyedMetadata && ((IKeyedMetadata) mv).getKey() == key)
+				return (IKeyedMetadata) mv;
+		}
+		return null;
+	}
+	
+	/**
+	 * Get the values stored with the handle {@code key} for all {@code targets}.
+	 * @param dst list to put the values in (cleared first), in iteration order of {@code targets} - {@code null} for
+	 *  targets without a value. If this is {@code null} a new list is created.
+	 * @return {@code dst} (or the new list)
+	 * @throws IllegalArgumentException if {@code targets} or {@code key} is {@code null}
+	 */
+	public static <T> List<T> getAll(final Collection<? extends Metadatable> targets, final MetadataKey<T> key, List<T> dst)
+	{
+		if (targets == null)
+			throw new IllegalArgumentException("targets can't be null");
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		if (dst == null)
+			dst = new ArrayList<T>(targets.size());
+		else
+			dst.clear();
+		for (final Metadatable target : targets)
+		{
+			final IKeyedMetadata meta = find(target, key);
+			@SuppressWarnings("unchecked")
+			final T value = meta == null ? null : (T) meta.value(); //the handle guarantees T
+			dst.add(value);
+		}
+		return dst;
+	}
+	
+	/**
+	 * Get the {@code int} values stored with the handle {@code key} for all {@code targets}, without boxing.
+	 * @param def value to use for targets without a value
+	 * @param dst array to put the values in, in iteration order of {@code targets}. If this is {@code null} or too
+	 *  small a new array is created.
+	 * @return {@code dst} (or the new array)
+	 * @throws IllegalArgumentException if {@code targets} or {@code key} is {@code null}
+	 */
+	public static int[] getAllInts(final Collection<? extends Metadatable> targets, final MetadataKey<Integer> key, final int def, int[] dst)
+	{
+		if (targets == null)
+			throw new IllegalArgumentException("targets can't be null");
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		if (dst == null || dst.length < targets.size())
+			dst = new int[targets.size()];
+		int i = 0;
+		for (final Metadatable target : targets)
+		{
+			final IKeyedMetadata meta = find(target, key);
+			dst[i++] = meta == null ? def : meta.asInt();
+		}
+		return dst;
+	}
+	
+	/**
+	 * Get the {@code long} values stored with the handle {@code key} for all {@code targets}, without boxing.
+	 * @param def value to use for targets without a value
+	 * @param dst array to put the values in, in iteration order of {@code targets}. If this is {@code null} or too
+	 *  small a new array is created.
+	 * @return {@code dst} (or the new array)
+	 * @throws IllegalArgumentException if {@code targets} or {@code key} is {@code null}
+	 */
+	public static long[] getAllLongs(final Collection<? extends Metadatable> targets, final MetadataKey<Long> key, final long def, long[] dst)
+	{
+		if (targets == null)
+			throw new IllegalArgumentException("targets can't be null");
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		if (dst == null || dst.length < targets.size())
+			dst = new long[targets.size()];
+		int i = 0;
+		for (final Metadatable target : targets)
+		{
+			final IKeyedMetadata meta = find(target, key);
+			dst[i++] = meta == null ? def : meta.asLong();
+		}
+		return dst;
+	}
+	
+	// -----
+	
+	/**
+	 * Sets the {@link GenericMetadata} stored with the handle {@code key} to {@code value} for all {@code targets}
+	 * (creating it where needed).
+	 * @throws IllegalArgumentException if {@code targets} or {@code key} is {@code null}, or the plugin of {@code key}
+	 *  has been unloaded
+	 * @see GenericMetadata#setMetadataValue(Metadatable, MetadataKey, Object)
+	 */
+	public static <T> void setAll(final Collection<? extends Metadatable> targets, final MetadataKey<T> key, final T value)
+	{
+		if (targets == null)
+			throw new IllegalArgumentException("targets can't be null");
+		for (final Metadatable target : targets)
+			GenericMetadata.setMetadataValue(target, key, value);
+	}
+	
+	/**
+	 * Sets the {@link BasicMetadataInt} stored with the handle {@code key} to {@code value} for all {@code targets}
+	 * (creating it where needed).
+	 * @throws IllegalArgumentException if {@code targets} or {@code key} is {@code null}, or the plugin of {@code key}
+	 *  has been unloaded
+	 * @see BasicMetadataInt#setMetadataValue(Metadatable, MetadataKey, int)
+	 */
+	public static void setAllInts(final Collection<? extends Metadatable> targets, final MetadataKey<Integer> key, final int value)
+	{
+		if (targets == null)
+			throw new IllegalArgumentException("targets can't be null");
+		for (final Metadatable target : targets)
+			BasicMetadataInt.setMetadataValue(target, key, value);
+	}
+	
+	/**
+	 * Sets the {@link BasicMetadataLong} stored with the handle {@code key} to {@code value} for all {@code targets}
+	 * (creating it where needed).
+	 * @throws IllegalArgumentException if {@code targets} or {@code key} is {@code null}, or the plugin of {@code key}
+	 *  has been unloaded
+	 * @see BasicMetadataLong#setMetadataValue(Metadatable, MetadataKey, long)
+	 */
+	public static void setAllLongs(final Collection<? extends Metadatable> targets, final MetadataKey<Long> key, final long value)
+	{
+		if (targets == null)
+			throw new IllegalArgumentException("targets can't be null");
+		for (final Metadatable target : targets)
+			BasicMetadataLong.setMetadataValue(target, key, value);
+	}
+	
+	// -----
+	
+	/**
+	 * Calls {@code visitor} for every target that has a value stored with the handle {@code key}.
+	 * @return the number of visited targets
+	 * @throws IllegalArgumentException if any argument is {@code null}
+	 */
+	public static <T> int forEach(final Collection<? extends Metadatable> targets, final MetadataKey<T> key, final IVisitor<? super T> visitor)
+	{
+		if (targets == null)
+			throw new IllegalArgumentException("targets can't be null");
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		if (visitor == null)
+			throw new IllegalArgumentException("visitor can't be null");
+		int count = 0;
+		for (final Metadatable target : targets)
+		{
+			final IKeyedMetadata meta = find(target, key);
+			if (meta != null)
+			{
+				@SuppressWarnings("unchecked")
+				final T value = (T) meta.value(); //the handle guarantees T
+				visitor.visit(target, meta, value);
+				++count;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Removes the metadata of {@code plugin} stored under the name of any of its {@link MetadataKey} handles from all
+	 * {@code targets}. (Typically on chunk unload.)
+	 * <br>The handles of {@code plugin} are collected once for the whole batch.
+	 * <br><i>Note: Removes all values of {@code plugin} under those names - also ones not created with a handle.</i>
+	 * @throws IllegalArgumentException if {@code targets} or {@code plugin} is {@code null}
+	 */
+	public static void invalidateAll(final Collection<? extends Metadatable> targets, final Plugin plugin)
+	{
+		if (targets == null)
+			throw new IllegalArgumentException("targets can't be null");
+		if (plugin == null)
+			throw new IllegalArgumentException("plugin can't be null");
+		final ArrayList<MetadataKey<?>> keys = MetadataKey.keysOf(plugin);
+		final String[] names = new String[keys.size()];
+		for (int i = 0; i < names.length; ++i)
+			names[i] = keys.get(i).getName();
+		for (final Metadatable target : targets)
+			for (final String name : names)
+				target.removeMetadata(name, plugin); //(no-op if nothing is stored)
+	}
+}
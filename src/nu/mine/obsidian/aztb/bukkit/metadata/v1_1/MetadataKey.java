@@ -0,0 +1,168 @@
+package nu.mine.obsidian.aztb.bukkit.metadata.v1_1;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * An interned handle for a metadata key: the key name together with its value class and owning {@link Plugin}.
+ * <p/>Create the handles once (e.g. as {@code static final} fields, or in {@code onEnable()}) and pass them instead
+ * of the key {@link String}: metadata created with a handle remembers it, so the handle overloads
+ * ({@link BasicMetadataInt#getMetadataValue(org.bukkit.metadata.Metadatable, MetadataKey)},
+ * {@link GenericMetadata#getMetadataValue(org.bukkit.metadata.Metadatable, MetadataKey)},
+ * {@link FinalMetadata#getData(org.bukkit.metadata.Metadatable, MetadataKey, FinalMetadata.TryCreate)}, ...) find
+ * their {@link MetadataValue} with a single reference comparison, instead of re-checking owning plugin and value
+ * class. <i>(They still fetch the values with {@link org.bukkit.metadata.Metadatable#getMetadata(String)
+ * getMetadata(name)}, so Bukkit's key building, hashing and list copy remain.)</i>
+ * <br>{@link MetadataStore} uses the {@link #getSlot() slot} to find its column without hashing the key - use its
+ * columns where the lookup itself has to be cheap.
+ * <p/>{@link #of(Plugin, String, Class)} returns the same handle for the same plugin and key name.
+ * @author AnorZaken
+ * @version 1.1
+ *
+ * @param <T> the value type stored under this key
+ */
+public final class MetadataKey<T>
+{
+	private static final HashMap<String, ArrayList<MetadataKey<?>>> interned = new HashMap<String, ArrayList<MetadataKey<?>>>();
+	private static int nextSlot = 0;
+	
+	private final String name;
+	private final Class<T> valueClass;
+	private final WeakReference<Plugin> owningPlugin;
+	private final int slot;
+	private final int hash;
+	
+	private MetadataKey(final Plugin plugin, final String name, final Class<T> valueClass, final int slot)
+	{
+		this.name = name;
+		this.valueClass = valueClass;
+		this.owningPlugin = new WeakReference<Plugin>(plugin);
+		this.slot = slot;
+		this.hash = name.hashCode() * 31 + System.identityHashCode(plugin);
+	}
+	
+	/**
+	 * Get the interned {@link MetadataKey} for {@code plugin} and {@code name}, creating it if needed.
+	 * <br><i>Thread safe, but not meant for hot paths - keep the returned handle.</i>
+	 * @throws IllegalArgumentException if any argument is {@code null}, or if {@code plugin} already has a handle for
+	 *  {@code name} with another value class
+	 */
+	public static <T> MetadataKey<T> of(final Plugin plugin, final String name, final Class<T> valueClass)
+	{
+		if (plugin == null)
+			throw new IllegalArgumentException("plugin can't be null");
+		if (name == null)
+			throw new IllegalArgumentException("name can't be null");
+		if (valueClass == null)
+			throw new IllegalArgumentException("valueClass can't be null");
+		synchronized (interned)
+		{
+			ArrayList<MetadataKey<?>> keys = interned.get(name);
+			if (keys == null)
+				interned.put(name, keys = new ArrayList<MetadataKey<?>>(1));
+			for (final Iterator<MetadataKey<?>> it = keys.iterator(); it.hasNext(); )
+			{
+				final MetadataKey<?> key = it.next();
+				final Plugin p = key.owningPlugin.get();
+				if (p == null)
+					it.remove(); //plugin has been unloaded
+				else if (p == plugin)
+				{
+					if (key.valueClass != valueClass)
+						throw new IllegalArgumentException(name + " is already a key of " + key.valueClass.getName());
+					@SuppressWarnings("unchecked")
+					final MetadataKey<T> k = (MetadataKey<T>) key;
+					return k;
+				}
+			}
+			final MetadataKey<T> key = new MetadataKey<T>(plugin, name.intern(), valueClass, nextSlot++);
+			keys.add(key);
+			return key;
+		}
+	}
+	
+	/**
+	 * Get all interned handles of {@code plugin}. <i>O(handles of all plugins)</i>
+	 */
+	static ArrayList<MetadataKey<?>> keysOf(final Plugin plugin)
+	{
+		final ArrayList<MetadataKey<?>> result = new ArrayList<MetadataKey<?>>();
+		synchronized (interned)
+		{
+			for (final ArrayList<MetadataKey<?>> keys : interned.values())
+				for (final MetadataKey<?> key : keys)
+					if (key.owningPlugin.get() == plugin)
+						result.add(key);
+		}
+		return result;
+	}
+	
+	// -----
+	
+	/**
+	 * The key name (the {@link String} used with the Bukkit metadata API).
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	public Class<T> getValueClass() {
+		return valueClass;
+	}
+	
+	/**
+	 * The owning {@link Plugin}, or {@code null} if it has been unloaded.
+	 */
+	public Plugin getPlugin() {
+		return owningPlugin.get();
+	}
+	
+	/**
+	 * A small, unique, non-negative id of this handle (assigned in creation order).
+	 */
+	public int getSlot() {
+		return slot;
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	/**
+	 * (Handles are interned, so this is identity.)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		return this == obj;
+	}
+	
+	@Override
+	public String toString() {
+		final Plugin p = owningPlugin.get();
+		return (p == null ? "?" : p.getName()) + ":" + name + "<" + valueClass.getSimpleName() + ">";
+	}
+}
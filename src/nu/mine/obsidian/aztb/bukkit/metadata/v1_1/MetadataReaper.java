@@ -0,0 +1,416 @@
+package nu.mine.obsidian.aztb.bukkit.metadata.v1_1;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.metadata.Metadatable;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Automatic eviction of metadata, so stale values don't pile up in the Bukkit metadata maps:
+ * <ul>
+ *  <li><b>TTL</b>: {@link #set(Metadatable, String, MetadataValue, long)} /
+ *      {@link #expire(Metadatable, String, MetadataValue, long)} remove the value after a number of ticks.
+ *      Registering the same value again refreshes its TTL.</li>
+ *  <li><b>On death / unload</b>: {@link #evictOnRemoval(Entity, String, MetadataValue)} removes the value when the
+ *      entity dies (non-players), its chunk unloads, or the player quits. (TTL values of entities are evicted early
+ *      on these events too.) Rows of {@link #addStore(MetadataStore) added} {@link MetadataStore MetadataStores} are
+ *      freed on the same events.</li>
+ * </ul>
+ * Expiry is processed by a timer wheel (256 slots of one tick each) swept by a repeating 1-tick task: every tick only
+ * the values in the current slot are looked at, so the cost doesn't grow with the number of tracked values.
+ * <br>The same task also checks {@value #SWEEP_PER_TICK} tracked values per tick (round robin) and evicts those whose
+ * target has been garbage collected or is an entity that is no longer {@link Entity#isValid() valid} (removed by
+ * {@link Entity#remove()}, despawned, picked up, ...), so values of targets removed without an event don't pile up.
+ * (Players are exempt from the validity check - they are invalid while dead, and are evicted when they quit.)
+ * <br>Values are only removed if they are still stored on the target (same instance), and
+ * {@link MetadataValue#invalidate()} is called on them when they are.
+ * <p/><i>Note: Not thread safe - for the main server thread only. Targets are held by weak references.</i>
+ * @author AnorZaken
+ * @version 1.1
+ */
+public final class MetadataReaper implements Runnable, Listener
+{
+	private static final int WHEEL_SIZE = 256; //must be a power of 2
+	private static final int MASK = WHEEL_SIZE - 1;
+	
+	/**
+	 * Number of tracked values checked for removed targets per tick.
+	 */
+	public static final int SWEEP_PER_TICK = 64;
+	
+	private static final class Entry
+	{
+		final WeakReference<Metadatable> target;
+		final UUID owner; //null if target isn't an Entity
+		final String key;
+		final MetadataValue value;
+		long deadline; //Long.MAX_VALUE if only evicted on removal
+		int slot = -1; //wheel slot, -1 if not in the wheel
+		Entry prev, next; //in the wheel slot
+		int index; //in all
+		
+		Entry(final Metadatable target, final String key, final MetadataValue value)
+		{
+			this.target = new WeakReference<Metadatable>(target);
+			this.owner = target instanceof Entity ? ((Entity) target).getUniqueId() : null;
+			this.key = key;
+			this.value = value;
+		}
+	}
+	
+	// ===================
+	
+	private final Plugin plugin;
+	private final Entry[] wheel = new Entry[WHEEL_SIZE];
+	private final IdentityHashMap<MetadataValue, Entry> entries = new IdentityHashMap<MetadataValue, Entry>();
+	private final ArrayList<Entry> all = new ArrayList<Entry>(); //same entries, for the sweep
+	private int sweep = 0; //sweep cursor in all
+	private final HashMap<UUID, ArrayList<Entry>> byOwner = new HashMap<UUID, ArrayList<Entry>>();
+	private final ArrayList<MetadataStore> stores = new ArrayList<MetadataStore>(1);
+	private long tick = 0L;
+	
+	private BukkitTask task = null;
+	
+	// ===================
+	
+	/**
+	 * Create a {@link MetadataReaper}. (Call {@link #start()} to start evicting.)
+	 * @param plugin plugin to schedule the sweep task and register the event listener for
+	 * @throws IllegalArgumentException if {@code plugin} is {@code null}
+	 */
+	public MetadataReaper(final Plugin plugin)
+	{
+		if (plugin == null)
+			throw new IllegalArgumentException("plugin can't be null");
+		this.plugin = plugin;
+	}
+	
+	/**
+	 * Starts the repeating 1-tick sweep task and registers the death / unload listener. (Does nothing if already
+	 * started.)
+	 */
+	public void start()
+	{
+		if (task != null)
+			return;
+		plugin.getServer().getPluginManager().registerEvents(this, plugin);
+		task = plugin.getServer().getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+	}
+	
+	/**
+	 * Stops the sweep task and unregisters the listener. Tracked values are kept (TTLs are paused).
+	 */
+	public void stop()
+	{
+		if (task == null)
+			return;
+		task.cancel();
+		task = null;
+		HandlerList.unregisterAll(this);
+	}
+	
+	public boolean isRunning() {
+		return task != null;
+	}
+	
+	// ===================
+	
+	/**
+	 * Stores {@code value} on {@code target} under {@code key} and removes it again after {@code ttlTicks} ticks.
+	 * @throws IllegalArgumentException if any argument is {@code null}, or {@code ttlTicks} is not positive
+	 * @see #expire(Metadatable, String, MetadataValue, long)
+	 */
+	public void set(final Metadatable target, final String key, final MetadataValue value, final long ttlTicks)
+	{
+		expire(target, key, value, ttlTicks);
+		target.setMetadata(key, value);
+	}
+	
+	/**
+	 * Removes {@code value} (already stored on {@code target} under {@code key}) after {@code ttlTicks} ticks.
+	 * <br>If {@code value} is already tracked its TTL is reset to {@code ttlTicks}. <i>O(1)</i>
+	 * @throws IllegalArgumentException if any argument is {@code null}, or {@code ttlTicks} is not positive
+	 */
+	public void expire(final Metadatable target, final String key, final MetadataValue value, final long ttlTicks)
+	{
+		if (ttlTicks <= 0L)
+			throw new IllegalArgumentException("Illegal ttlTicks: " + ttlTicks);
+		final Entry e = track(target, key, value);
+		unlink(e);
+		e.deadline = tick + ttlTicks;
+		link(e);
+	}
+	
+	/**
+	 * Removes {@code value} (already stored on {@code entity} under {@code key}) when {@code entity} dies (unless
+	 * it is a {@link Player}), is unloaded with its chunk, or quits (if it is a {@link Player}).
+	 * @throws IllegalArgumentException if any argument is {@code null}
+	 */
+	public void evictOnRemoval(final Entity entity, final String key, final MetadataValue value) {
+		track(entity, key, value);
+	}
+	
+	/**
+	 * Free the rows of entities in {@code store} when they die, are unloaded or quit.
+	 * @throws IllegalArgumentException if {@code store} is {@code null}
+	 */
+	public void addStore(final MetadataStore store)
+	{
+		if (store == null)
+			throw new IllegalArgumentException("store can't be null");
+		if (!stores.contains(store))
+			stores.add(store);
+	}
+	
+	public boolean removeStore(final MetadataStore store) {
+		return stores.remove(store);
+	}
+	
+	/**
+	 * Stop tracking {@code value} (without removing it).
+	 * @return {@code true} if {@code value} was tracked
+	 */
+	public boolean forget(final MetadataValue value)
+	{
+		final Entry e = entries.get(value);
+		if (e == null)
+			return false;
+		untrack(e);
+		unlink(e);
+		unlinkOwner(e);
+		return true;
+	}
+	
+	/**
+	 * Number of tracked values.
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	// -----
+	
+	private Entry track(final Metadatable target, final String key, final MetadataValue value)
+	{
+		if (target == null)
+			throw new IllegalArgumentException("target can't be null");
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		if (value == null)
+			throw new IllegalArgumentException("value can't be null");
+		Entry e = entries.get(value);
+		if (e != null && (e.target.get() != target || !e.key.equals(key)))
+		{
+			forget(value); //value moved to another target or key
+			e = null;
+		}
+		if (e == null)
+		{
+			e = new Entry(target, key, value);
+			e.deadline = Long.MAX_VALUE;
+			entries.put(value, e);
+			e.index = all.size();
+			all.add(e);
+			if (e.owner != null)
+			{
+				ArrayList<Entry> list = byOwner.get(e.owner);
+				if (list == null)
+					byOwner.put(e.owner, list = new ArrayList<Entry>(2));
+				list.add(e);
+			}
+		}
+		return e;
+	}
+	
+	private void link(final Entry e)
+	{
+		final int slot = (int) e.deadline & MASK;
+		e.slot = slot;
+		e.prev = null;
+		e.next = wheel[slot];
+		if (e.next != null)
+			e.next.prev = e;
+		wheel[slot] = e;
+	}
+	
+	private void unlink(final Entry e)
+	{
+		if (e.slot < 0)
+			return;
+		if (e.prev == null)
+			wheel[e.slot] = e.next;
+		else
+			e.prev.next = e.next;
+		if (e.next != null)
+			e.next.prev = e.prev;
+		e.prev = e.next = null;
+		e.slot = -1;
+	}
+	
+	/**
+	 * Removes {@code e} from {@link #entries} and {@link #all} (swapping the last entry into its place).
+	 */
+	private void untrack(final Entry e)
+	{
+		entries.remove(e.value);
+		final Entry last = all.remove(all.size() - 1);
+		if (last != e)
+		{
+			last.index = e.index;
+			all.set(e.index, last);
+		}
+	}
+	
+	private void unlinkOwner(final Entry e)
+	{
+		if (e.owner == null)
+			return;
+		final ArrayList<Entry> list = byOwner.get(e.owner);
+		if (list != null && list.remove(e) && list.isEmpty())
+			byOwner.remove(e.owner);
+	}
+	
+	/**
+	 * Removes the value of {@code e} from its target (if it is still stored there) and stops tracking it.
+	 */
+	private void evict(final Entry e)
+	{
+		unlink(e);
+		untrack(e);
+		final Metadatable target = e.target.get();
+		if (target == null)
+			return;
+		final List<MetadataValue> dlist = target.getMetadata(e.key);
+		for (int i = 0; i < dlist.size(); ++i)
+		{
+			if (dlist.get(i) == e.value)
+			{
+				final Plugin owner = e.value.getOwningPlugin();
+				if (owner != null)
+					target.removeMetadata(e.key, owner);
+				e.value.invalidate();
+				return;
+			}
+		}
+	}
+	
+	// ===================
+	
+	/**
+	 * <i>Called by the scheduler every tick - don't call this yourself.</i>
+	 */
+	@Override
+	public void run()
+	{
+		final long now = ++tick;
+		final int slot = (int) now & MASK;
+		Entry e = wheel[slot];
+		wheel[slot] = null;
+		while (e != null)
+		{
+			final Entry next = e.next;
+			e.prev = e.next = null;
+			e.slot = -1;
+			if (e.deadline <= now)
+			{
+				unlinkOwner(e);
+				evict(e);
+			}
+			else
+				link(e); //due in a later round of the wheel
+			e = next;
+		}
+		
+		//incremental sweep for targets removed without an event
+		for (int n = Math.min(SWEEP_PER_TICK, all.size()); n > 0; --n)
+		{
+			if (sweep >= all.size())
+				sweep = 0;
+			e = all.get(sweep);
+			if (isGone(e.target.get()))
+			{
+				unlinkOwner(e);
+				evict(e); //(swaps another entry into all[sweep])
+			}
+			else
+				++sweep;
+		}
+	}
+	
+	private static boolean isGone(final Metadatable target) {
+		return target == null || target instanceof Entity && !(target instanceof Player) && !((Entity) target).isValid();
+	}
+	
+	/**
+	 * Evicts everything tracked for {@code entity} now (also its {@link MetadataStore} rows). <i>(Called by the
+	 * listener methods.)</i>
+	 * @return the number of evicted values
+	 */
+	public int evict(final Entity entity)
+	{
+		if (entity == null)
+			return 0;
+		for (final MetadataStore store : stores)
+			store.remove(entity);
+		final ArrayList<Entry> list = byOwner.remove(entity.getUniqueId());
+		if (list == null)
+			return 0;
+		for (final Entry e : list)
+			evict(e);
+		return list.size();
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onEntityDeath(final EntityDeathEvent event)
+	{
+		if (!(event.getEntity() instanceof Player)) //players keep their metadata through respawn
+			evict(event.getEntity());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(final PlayerQuitEvent event) {
+		evict(event.getPlayer());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onChunkUnload(final ChunkUnloadEvent event)
+	{
+		for (final Entity entity : event.getChunk().getEntities())
+			if (!(entity instanceof Player))
+				evict(entity);
+	}
+}
@@ -0,0 +1,1018 @@
+package nu.mine.obsidian.aztb.bukkit.metadata.v1_1;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.metadata.Metadatable;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * An indexed metadata store for {@link Entity Entities}, owned by one {@link Plugin}.
+ * <p/>Values are kept in typed columns ({@link IntColumn}, {@link LongColumn}, {@link DoubleColumn} and
+ * {@link ObjectColumn}), one per key, indexed by a row per entity {@link UUID}. Reading a value is a single hash
+ * lookup and an array access: <i>O(1)</i>, no allocation, no boxing - unlike {@link Metadatable#getMetadata(String)}
+ * that allocates a {@link java.util.List List} and has to be scanned for the right plugin and type.
+ * <p/>For interop the first {@code set} of a value on an entity also registers a {@link MetadataValue} proxy under the
+ * column key, so other plugins (and the {@link Metadatable} API) still see the value. The proxy reads through to the
+ * store. <i>Values written through the proxy are not possible - {@link MetadataValue} is read-only.</i>
+ * <br>Proxies hold their column (and the store its plugin) by weak references, so proxies left in the Bukkit metadata
+ * maps don't keep a disabled plugin or a dropped store alive.
+ * <p/>Call {@link #remove(Entity)} (or {@link #remove(UUID)} if the entity is gone) when an entity is no longer
+ * needed, to free its row. (A row is also freed when the last of its values is removed with
+ * {@link Column#remove(Entity)}.)
+ * <p/><i>Note: Not thread safe - like the Bukkit metadata API this is meant for the main server thread.</i>
+ * @author AnorZaken
+ * @version 1.1
+ */
+public final class MetadataStore
+{
+	/**
+	 * Base class of the columns of a {@link MetadataStore}. Each column holds the values of one metadata key.
+	 * @author AnorZaken
+	 */
+	public static abstract class Column
+	{
+		protected final MetadataStore store;
+		protected final String key;
+		private long[] present = new long[1];
+		
+		private Column(final MetadataStore store, final String key)
+		{
+			this.store = store;
+			this.key = key;
+		}
+		
+		/**
+		 * The metadata key of this column.
+		 */
+		public final String getKey() {
+			return key;
+		}
+		
+		/**
+		 * The {@link MetadataStore} this column belongs to.
+		 */
+		public final MetadataStore getStore() {
+			return store;
+		}
+		
+		/**
+		 * Check if there is a value stored for {@code id}. <i>O(1)</i>
+		 */
+		public final boolean has(final UUID id) {
+			return isSet(store.rowOf(id));
+		}
+		
+		/**
+		 * Check if there is a value stored for {@code entity}. <i>O(1)</i>
+		 */
+		public final boolean has(final Entity entity) {
+			return entity != null && has(entity.getUniqueId());
+		}
+		
+		/**
+		 * Removes the value stored for {@code entity} (and its {@link MetadataValue} proxy).
+		 * @return {@code true} if there was a value to remove
+		 */
+		public final boolean remove(final Entity entity)
+		{
+			if (entity == null)
+				return false;
+			final UUID id = entity.getUniqueId();
+			final int row = store.rowOf(id);
+			if (!isSet(row))
+				return false;
+			clear(row);
+			final Plugin plugin = store.getPlugin();
+			if (plugin != null)
+				entity.removeMetadata(key, plugin);
+			store.freeRowIfEmpty(id, row);
+			return true;
+		}
+		
+		// -----
+		
+		final boolean isSet(final int row) {
+			return row >= 0 && (row >>> 6) < present.length && (present[row >>> 6] & (1L << row)) != 0L;
+		}
+		
+		/**
+		 * Marks {@code row} as set, growing the column if needed.
+		 * @return {@code false} if {@code row} was already set
+		 */
+		final boolean mark(final int row)
+		{
+			if ((row >>> 6) >= present.length)
+				present = Arrays.copyOf(present, Math.max(present.length << 1, (row >>> 6) + 1));
+			if (row >= capacity())
+				grow(Math.max(capacity() << 1, row + 1));
+			final long bit = 1L << row;
+			if ((present[row >>> 6] & bit) != 0L)
+				return false;
+			present[row >>> 6] |= bit;
+			return true;
+		}
+		
+		void clear(final int row)
+		{
+			if ((row >>> 6) < present.length)
+				present[row >>> 6] &= ~(1L << row);
+		}
+		
+		/**
+		 * The first set row at or after {@code row}, or -1 if there is none.
+		 */
+		final int nextSet(final int row)
+		{
+			int w = row >>> 6;
+			if (w >= present.length)
+				return -1;
+			long bits = present[w] & (-1L << row);
+			while (bits == 0L) {
+				if (++w == present.length)
+					return -1;
+				bits = present[w];
+			}
+			return (w << 6) + Long.numberOfTrailingZeros(bits);
+		}
+		
+		/**
+		 * Prepares {@code entity} for writing: gets (or allocates) its row, and registers the proxy if this is the
+		 * first value stored for it in this column.
+		 */
+		final int rowForWrite(final Entity entity)
+		{
+			if (entity == null)
+				throw new IllegalArgumentException("entity can't be null");
+			final UUID id = entity.getUniqueId();
+			final int row = store.rowFor(id);
+			if (mark(row))
+				entity.setMetadata(key, new Proxy(this, id));
+			return row;
+		}
+		
+		abstract int capacity();
+		abstract void grow(int capacity);
+		
+		abstract long longValue(int row);
+		abstract double doubleValue(int row);
+		abstract boolean booleanValue(int row);
+		abstract Object objectValue(int row);
+	}
+	
+	/**
+	 * Column of {@code int} values.
+	 * @author AnorZaken
+	 */
+	public static final class IntColumn extends Column
+	{
+		/**
+		 * Callback for {@link IntColumn#forEach(IVisitor)}.
+		 */
+		public static interface IVisitor
+		{
+			public void visit(UUID id, int value);
+		}
+		
+		private int[] values = new int[16];
+		
+		private IntColumn(final MetadataStore store, final String key) {
+			super(store, key);
+		}
+		
+		/**
+		 * Get the value stored for {@code id}, or {@code def} if there is none. <i>O(1)</i>
+		 */
+		public int get(final UUID id, final int def)
+		{
+			final int row = store.rowOf(id);
+			return isSet(row) ? values[row] : def;
+		}
+		
+		/**
+		 * Get the value stored for {@code entity}, or {@code def} if there is none. <i>O(1)</i>
+		 * @throws NullPointerException if {@code entity} is {@code null}
+		 */
+		public int get(final Entity entity, final int def) {
+			return get(entity.getUniqueId(), def);
+		}
+		
+		/**
+		 * Store {@code value} for {@code entity}. <i>O(1)</i>
+		 * @throws IllegalArgumentException if {@code entity} is {@code null}
+		 */
+		public void set(final Entity entity, final int value)
+		{
+			final int row = rowForWrite(entity); //(might grow values)
+			values[row] = value;
+		}
+		
+		/**
+		 * Get the values stored for all {@code entities}. <i>O(entities)</i>
+		 * @param def value to use for entities without a value
+		 * @param dst array to put the values in, in iteration order of {@code entities}. If this is {@code null} or
+		 *  too small a new array is created.
+		 * @return {@code dst} (or the new array)
+		 * @throws NullPointerException if {@code entities} is (or contains) {@code null}
+		 */
+		public int[] getAll(final Collection<? extends Entity> entities, final int def, int[] dst)
+		{
+			if (dst == null || dst.length < entities.size())
+				dst = new int[entities.size()];
+			int i = 0;
+			for (final Entity entity : entities)
+			{
+				final int row = store.rowOf(entity.getUniqueId());
+				dst[i++] = isSet(row) ? values[row] : def;
+			}
+			return dst;
+		}
+		
+		/**
+		 * Store {@code value} for all {@code entities}. <i>O(entities)</i>
+		 * @throws IllegalArgumentException if {@code entities} contains {@code null}
+		 * @throws NullPointerException if {@code entities} is {@code null}
+		 */
+		public void setAll(final Collection<? extends Entity> entities, final int value)
+		{
+			for (final Entity entity : entities)
+				set(entity, value);
+		}
+		
+		/**
+		 * Calls {@code visitor} for every stored value. <i>O(rows)</i>
+		 * <br><i>The store must not be modified during the iteration.</i>
+		 * @return number of visited values
+		 */
+		public int forEach(final IVisitor visitor)
+		{
+			int count = 0;
+			for (int row = nextSet(0); row >= 0; row = nextSet(row + 1), ++count)
+				visitor.visit(store.rowIds[row], values[row]);
+			return count;
+		}
+		
+		@Override int capacity() { return values.length; }
+		@Override void grow(final int capacity) { values = Arrays.copyOf(values, capacity); }
+		@Override long longValue(final int row) { return values[row]; }
+		@Override double doubleValue(final int row) { return values[row]; }
+		@Override boolean booleanValue(final int row) { return values[row] != 0; }
+		@Override Object objectValue(final int row) { return Integer.valueOf(values[row]); }
+	}
+	
+	/**
+	 * Column of {@code long} values.
+	 * @author AnorZaken
+	 */
+	public static final class LongColumn extends Column
+	{
+		/**
+		 * Callback for {@link LongColumn#forEach(IVisitor)}.
+		 */
+		public static interface IVisitor
+		{
+			public void visit(UUID id, long value);
+		}
+		
+		private long[] values = new long[16];
+		
+		private LongColumn(final MetadataStore store, final String key) {
+			super(store, key);
+		}
+		
+		/**
+		 * Get the value stored for {@code id}, or {@code def} if there is none. <i>O(1)</i>
+		 */
+		public long get(final UUID id, final long def)
+		{
+			final int row = store.rowOf(id);
+			return isSet(row) ? values[row] : def;
+		}
+		
+		/**
+		 * Get the value stored for {@code entity}, or {@code def} if there is none. <i>O(1)</i>
+		 * @throws NullPointerException if {@code entity} is {@code null}
+		 */
+		public long get(final Entity entity, final long def) {
+			return get(entity.getUniqueId(), def);
+		}
+		
+		/**
+		 * Store {@code value} for {@code entity}. <i>O(1)</i>
+		 * @throws IllegalArgumentException if {@code entity} is {@code null}
+		 */
+		public void set(final Entity entity, final long value)
+		{
+			final int row = rowForWrite(entity); //(might grow values)
+			values[row] = value;
+		}
+		
+		/**
+		 * Get the values stored for all {@code entities}. <i>O(entities)</i>
+		 * @param def value to use for entities without a value
+		 * @param dst array to put the values in, in iteration order of {@code entities}. If this is {@code null} or
+		 *  too small a new array is created.
+		 * @return {@code dst} (or the new array)
+		 * @throws NullPointerException if {@code entities} is (or contains) {@code null}
+		 */
+		public long[] getAll(final Collection<? extends Entity> entities, final long def, long[] dst)
+		{
+			if (dst == null || dst.length < entities.size())
+				dst = new long[entities.size()];
+			int i = 0;
+			for (final Entity entity : entities)
+			{
+				final int row = store.rowOf(entity.getUniqueId());
+				dst[i++] = isSet(row) ? values[row] : def;
+			}
+			return dst;
+		}
+		
+		/**
+		 * Store {@code value} for all {@code entities}. <i>O(entities)</i>
+		 * @throws IllegalArgumentException if {@code entities} contains {@code null}
+		 * @throws NullPointerException if {@code entities} is {@code null}
+		 */
+		public void setAll(final Collection<? extends Entity> entities, final long value)
+		{
+			for (final Entity entity : entities)
+				set(entity, value);
+		}
+		
+		/**
+		 * Calls {@code visitor} for every stored value. <i>O(rows)</i>
+		 * <br><i>The store must not be modified during the iteration.</i>
+		 * @return number of visited values
+		 */
+		public int forEach(final IVisitor visitor)
+		{
+			int count = 0;
+			for (int row = nextSet(0); row >= 0; row = nextSet(row + 1), ++count)
+				visitor.visit(store.rowIds[row], values[row]);
+			return count;
+		}
+		
+		@Override int capacity() { return values.length; }
+		@Override void grow(final int capacity) { values = Arrays.copyOf(values, capacity); }
+		@Override long longValue(final int row) { return values[row]; }
+		@Override double doubleValue(final int row) { return values[row]; }
+		@Override boolean booleanValue(final int row) { return values[row] != 0L; }
+		@Override Object objectValue(final int row) { return Long.valueOf(values[row]); }
+	}
+	
+	/**
+	 * Column of {@code double} values.
+	 * @author AnorZaken
+	 */
+	public static final class DoubleColumn extends Column
+	{
+		/**
+		 * Callback for {@link DoubleColumn#forEach(IVisitor)}.
+		 */
+		public static interface IVisitor
+		{
+			public void visit(UUID id, double value);
+		}
+		
+		private double[] values = new double[16];
+		
+		private DoubleColumn(final MetadataStore store, final String key) {
+			super(store, key);
+		}
+		
+		/**
+		 * Get the value stored for {@code id}, or {@code def} if there is none. <i>O(1)</i>
+		 */
+		public double get(final UUID id, final double def)
+		{
+			final int row = store.rowOf(id);
+			return isSet(row) ? values[row] : def;
+		}
+		
+		/**
+		 * Get the value stored for {@code entity}, or {@code def} if there is none. <i>O(1)</i>
+		 * @throws NullPointerException if {@code entity} is {@code null}
+		 */
+		public double get(final Entity entity, final double def) {
+			return get(entity.getUniqueId(), def);
+		}
+		
+		/**
+		 * Store {@code value} for {@code entity}. <i>O(1)</i>
+		 * @throws IllegalArgumentException if {@code entity} is {@code null}
+		 */
+		public void set(final Entity entity, final double value)
+		{
+			final int row = rowForWrite(entity); //(might grow values)
+			values[row] = value;
+		}
+		
+		/**
+		 * Get the values stored for all {@code entities}. <i>O(entities)</i>
+		 * @param def value to use for entities without a value
+		 * @param dst array to put the values in, in iteration order of {@code entities}. If this is {@code null} or
+		 *  too small a new array is created.
+		 * @return {@code dst} (or the new array)
+		 * @throws NullPointerException if {@code entities} is (or contains) {@code null}
+		 */
+		public double[] getAll(final Collection<? extends Entity> entities, final double def, double[] dst)
+		{
+			if (dst == null || dst.length < entities.size())
+				dst = new double[entities.size()];
+			int i = 0;
+			for (final Entity entity : entities)
+			{
+				final int row = store.rowOf(entity.getUniqueId());
+				dst[i++] = isSet(row) ? values[row] : def;
+			}
+			return dst;
+		}
+		
+		/**
+		 * Store {@code value} for all {@code entities}. <i>O(entities)</i>
+		 * @throws IllegalArgumentException if {@code entities} contains {@code null}
+		 * @throws NullPointerException if {@code entities} is {@code null}
+		 */
+		public void setAll(final Collection<? extends Entity> entities, final double value)
+		{
+			for (final Entity entity : entities)
+				set(entity, value);
+		}
+		
+		/**
+		 * Calls {@code visitor} for every stored value. <i>O(rows)</i>
+		 * <br><i>The store must not be modified during the iteration.</i>
+		 * @return number of visited values
+		 */
+		public int forEach(final IVisitor visitor)
+		{
+			int count = 0;
+			for (int row = nextSet(0); row >= 0; row = nextSet(row + 1), ++count)
+				visitor.visit(store.rowIds[row], values[row]);
+			return count;
+		}
+		
+		@Override int capacity() { return values.length; }
+		@Override void grow(final int capacity) { values = Arrays.copyOf(values, capacity); }
+		@Override long longValue(final int row) { return (long) values[row]; }
+		@Override double doubleValue(final int row) { return values[row]; }
+		@Override boolean booleanValue(final int row) { return values[row] != 0d; }
+		@Override Object objectValue(final int row) { return Double.valueOf(values[row]); }
+	}
+	
+	/**
+	 * Column of object values (of type {@code T}).
+	 * @author AnorZaken
+	 * @param <T> type of the stored values
+	 */
+	public static final class ObjectColumn<T> extends Column
+	{
+		/**
+		 * Callback for {@link ObjectColumn#forEach(IVisitor)}.
+		 */
+		public static interface IVisitor<T>
+		{
+			public void visit(UUID id, T value);
+		}
+		
+		private final Class<T> valueClass;
+		private Object[] values = new Object[16];
+		
+		private ObjectColumn(final MetadataStore store, final String key, final Class<T> valueClass)
+		{
+			super(store, key);
+			this.valueClass = valueClass;
+		}
+		
+		/**
+		 * The class of the values in this column.
+		 */
+		public Class<T> getValueClass() {
+			return valueClass;
+		}
+		
+		/**
+		 * Get the value stored for {@code id}, or {@code def} if there is none. <i>O(1)</i>
+		 */
+		public T get(final UUID id, final T def)
+		{
+			final int row = store.rowOf(id);
+			if (!isSet(row))
+				return def;
+			@SuppressWarnings("unchecked")
+			final T value = (T) values[row];
+			return value;
+		}
+		
+		/**
+		 * Get the value stored for {@code entity}, or {@code def} if there is none. <i>O(1)</i>
+		 * @throws NullPointerException if {@code entity} is {@code null}
+		 */
+		public T get(final Entity entity, final T def) {
+			return get(entity.getUniqueId(), def);
+		}
+		
+		/**
+		 * Store {@code value} (can be {@code null}) for {@code entity}. <i>O(1)</i>
+		 * @throws IllegalArgumentException if {@code entity} is {@code null}
+		 */
+		public void set(final Entity entity, final T value)
+		{
+			final int row = rowForWrite(entity); //(might grow values)
+			values[row] = value;
+		}
+		
+		/**
+		 * Get the values stored for all {@code entities}. <i>O(entities)</i>
+		 * @param def value to use for entities without a value
+		 * @param dst list to put the values in (cleared first), in iteration order of {@code entities}. If this is
+		 *  {@code null} a new list is created.
+		 * @return {@code dst} (or the new list)
+		 * @throws NullPointerException if {@code entities} is (or contains) {@code null}
+		 */
+		public List<T> getAll(final Collection<? extends Entity> entities, final T def, List<T> dst)
+		{
+			if (dst == null)
+				dst = new ArrayList<T>(entities.size());
+			else
+				dst.clear();
+			for (final Entity entity : entities)
+				dst.add(get(entity.getUniqueId(), def));
+			return dst;
+		}
+		
+		/**
+		 * Store {@code value} for all {@code entities}. <i>O(entities)</i>
+		 * @throws IllegalArgumentException if {@code entities} contains {@code null}
+		 * @throws NullPointerException if {@code entities} is {@code null}
+		 */
+		public void setAll(final Collection<? extends Entity> entities, final T value)
+		{
+			for (final Entity entity : entities)
+				set(entity, value);
+		}
+		
+		/**
+		 * Calls {@code visitor} for every stored value. <i>O(rows)</i>
+		 * <br><i>The store must not be modified during the iteration.</i>
+		 * @return number of visited values
+		 */
+		public int forEach(final IVisitor<? super T> visitor)
+		{
+			int count = 0;
+			for (int row = nextSet(0); row >= 0; row = nextSet(row + 1), ++count)
+			{
+				@SuppressWarnings("unchecked")
+				final T value = (T) values[row];
+				visitor.visit(store.rowIds[row], value);
+			}
+			return count;
+		}
+		
+		@Override
+		void clear(final int row)
+		{
+			super.clear(row);
+			if (row < values.length)
+				values[row] = null;
+		}
+		
+		@Override int capacity() { return values.length; }
+		@Override void grow(final int capacity) { values = Arrays.copyOf(values, capacity); }
+		@Override Object objectValue(final int row) { return values[row]; }
+		
+		@Override
+		long longValue(final int row) {
+			return values[row] instanceof Number ? ((Number) values[row]).longValue() : 0L;
+		}
+		
+		@Override
+		double doubleValue(final int row) {
+			return values[row] instanceof Number ? ((Number) values[row]).doubleValue() : 0d;
+		}
+		
+		@Override
+		boolean booleanValue(final int row)
+		{
+			final Object data = values[row];
+			if (data instanceof Boolean)
+				return (Boolean) data;
+			else if (data instanceof Number)
+				return ((Number) data).doubleValue() != 0d;
+			else
+				return data != null;
+		}
+	}
+	
+	/**
+	 * The {@link MetadataValue} registered with Bukkit for interop - reads through to the column.
+	 * <br>(Reads as {@code null} / 0 once the value has been removed from the store, or the store is gone.)
+	 */
+	private static final class Proxy implements MetadataValue
+	{
+		private final WeakReference<Column> column;
+		private final UUID id;
+		private int row; //set by column() (main thread only, like the store)
+		
+		Proxy(final Column column, final UUID id)
+		{
+			this.column = new WeakReference<Column>(column);
+			this.id = id;
+		}
+		
+		/**
+		 * The column if it still has a value for this proxy, otherwise {@code null}. (Sets {@link #row}.)
+		 */
+		private Column column()
+		{
+			final Column c = column.get();
+			if (c == null)
+				return null;
+			row = c.store.rowOf(id);
+			return c.isSet(row) ? c : null;
+		}
+		
+		@Override
+		public Object value() {
+			final Column c = column();
+			return c == null ? null : c.objectValue(row);
+		}
+		
+		@Override
+		public String asString() {
+			final Column c = column();
+			return c == null ? null : String.valueOf(c.objectValue(row));
+		}
+		
+		@Override
+		public boolean asBoolean() {
+			final Column c = column();
+			return c != null && c.booleanValue(row);
+		}
+		
+		@Override
+		public double asDouble() {
+			final Column c = column();
+			return c == null ? 0d : c.doubleValue(row);
+		}
+		
+		@Override
+		public float asFloat() {
+			return (float) asDouble();
+		}
+		
+		@Override
+		public long asLong() {
+			final Column c = column();
+			return c == null ? 0L : c.longValue(row);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * <br>(Clamped to the range of {@link Integer}.)
+		 */
+		@Override
+		public int asInt() {
+			return (int) Math.min(Integer.MAX_VALUE, Math.max(Integer.MIN_VALUE, asLong()));
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * <br>(Clamped to the range of {@link Short}.)
+		 */
+		@Override
+		public short asShort() {
+			return (short) Math.min(Short.MAX_VALUE, Math.max(Short.MIN_VALUE, asLong()));
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * <br>(Clamped to the range of {@link Byte}.)
+		 */
+		@Override
+		public byte asByte() {
+			return (byte) Math.min(Byte.MAX_VALUE, Math.max(Byte.MIN_VALUE, asLong()));
+		}
+		
+		@Override
+		public Plugin getOwningPlugin() {
+			final Column c = column.get();
+			return c == null ? null : c.store.getPlugin();
+		}
+		
+		/**
+		 * (Does nothing)
+		 */
+		@Override
+		public void invalidate()
+		{}
+	}
+	
+	// ===================
+	
+	private final WeakReference<Plugin> plugin;
+	private final HashMap<String, Column> columns = new HashMap<String, Column>();
+	private final ArrayList<Column> columnList = new ArrayList<Column>();
+	private Column[] bySlot = new Column[16]; //indexed by MetadataKey slot
+	private final HashMap<UUID, Integer> rows = new HashMap<UUID, Integer>();
+	private UUID[] rowIds = new UUID[16];
+	private int[] freeRows = new int[16];
+	private int freeCount = 0;
+	private int nextRow = 0;
+	
+	// ===================
+	
+	/**
+	 * Create a {@link MetadataStore} for {@code plugin}.
+	 * @param plugin {@link Plugin} that owns all metadata (and proxies) of this store
+	 * @throws IllegalArgumentException if {@code plugin} is {@code null}
+	 */
+	public MetadataStore(final Plugin plugin)
+	{
+		if (plugin == null)
+			throw new IllegalArgumentException("plugin can't be null");
+		this.plugin = new WeakReference<Plugin>(plugin);
+	}
+	
+	/**
+	 * The plugin of this store, or {@code null} if it has been garbage collected.
+	 */
+	public Plugin getPlugin() {
+		return plugin.get();
+	}
+	
+	// ===================
+	
+	/**
+	 * Get the {@code int} column for {@code key}, creating it if needed.
+	 * <br><i>Keep the returned column - looking it up again hashes the key.</i>
+	 * @throws IllegalArgumentException if {@code key} is {@code null} or already used by another kind of column
+	 */
+	public IntColumn intColumn(final String key) {
+		return column(key, IntColumn.class, null);
+	}
+	
+	/**
+	 * Get the {@code long} column for {@code key}, creating it if needed.
+	 * @throws IllegalArgumentException if {@code key} is {@code null} or already used by another kind of column
+	 * @see #intColumn(String)
+	 */
+	public LongColumn longColumn(final String key) {
+		return column(key, LongColumn.class, null);
+	}
+	
+	/**
+	 * Get the {@code double} column for {@code key}, creating it if needed.
+	 * @throws IllegalArgumentException if {@code key} is {@code null} or already used by another kind of column
+	 * @see #intColumn(String)
+	 */
+	public DoubleColumn doubleColumn(final String key) {
+		return column(key, DoubleColumn.class, null);
+	}
+	
+	/**
+	 * Get the object column for {@code key}, creating it if needed.
+	 * @throws IllegalArgumentException if {@code key} or {@code valueClass} is {@code null}, or if {@code key} is
+	 *  already used by another kind of column (or an object column of another value class)
+	 * @see #intColumn(String)
+	 */
+	public <T> ObjectColumn<T> objectColumn(final String key, final Class<T> valueClass)
+	{
+		if (valueClass == null)
+			throw new IllegalArgumentException("valueClass can't be null");
+		final Column c = column(key, ObjectColumn.class, valueClass);
+		if (((ObjectColumn<?>) c).valueClass != valueClass)
+			throw new IllegalArgumentException(key + " is already used by a column of " + ((ObjectColumn<?>) c).valueClass.getName());
+		@SuppressWarnings("unchecked")
+		final ObjectColumn<T> oc = (ObjectColumn<T>) c;
+		return oc;
+	}
+	
+	private <C extends Column> C column(final String key, final Class<C> kind, final Class<?> valueClass)
+	{
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		Column c = columns.get(key);
+		if (c == null)
+		{
+			if (kind == IntColumn.class)
+				c = new IntColumn(this, key);
+			else if (kind == LongColumn.class)
+				c = new LongColumn(this, key);
+			else if (kind == DoubleColumn.class)
+				c = new DoubleColumn(this, key);
+			else
+				c = newObjectColumn(key, valueClass);
+			columns.put(key, c);
+			columnList.add(c);
+		}
+		else if (!kind.isInstance(c))
+			throw new IllegalArgumentException(key + " is already used by another kind of column");
+		return kind.cast(c);
+	}
+	
+	/**
+	 * Get the {@code int} column for the handle {@code key}, creating it if needed. <i>O(1) - no key hashing.</i>
+	 * @throws IllegalArgumentException if {@code key} is {@code null}, is not a key of the plugin of this store, or
+	 *  its name is already used by another kind of column
+	 */
+	public IntColumn intColumn(final MetadataKey<Integer> key) {
+		return column(key, IntColumn.class);
+	}
+	
+	/**
+	 * Get the {@code long} column for the handle {@code key}, creating it if needed. <i>O(1) - no key hashing.</i>
+	 * @throws IllegalArgumentException if {@code key} is {@code null}, is not a key of the plugin of this store, or
+	 *  its name is already used by another kind of column
+	 */
+	public LongColumn longColumn(final MetadataKey<Long> key) {
+		return column(key, LongColumn.class);
+	}
+	
+	/**
+	 * Get the {@code double} column for the handle {@code key}, creating it if needed. <i>O(1) - no key hashing.</i>
+	 * @throws IllegalArgumentException if {@code key} is {@code null}, is not a key of the plugin of this store, or
+	 *  its name is already used by another kind of column
+	 */
+	public DoubleColumn doubleColumn(final MetadataKey<Double> key) {
+		return column(key, DoubleColumn.class);
+	}
+	
+	/**
+	 * Get the object column for the handle {@code key}, creating it if needed. <i>O(1) - no key hashing.</i>
+	 * @throws IllegalArgumentException if {@code key} is {@code null}, is not a key of the plugin of this store, or
+	 *  its name is already used by another kind of column (or an object column of another value class)
+	 */
+	public <T> ObjectColumn<T> objectColumn(final MetadataKey<T> key)
+	{
+		@SuppressWarnings("unchecked")
+		final ObjectColumn<T> oc = column(key, ObjectColumn.class); //the handle guarantees T
+		return oc;
+	}
+	
+	private <C extends Column> C column(final MetadataKey<?> key, final Class<C> kind)
+	{
+		if (key == null)
+			throw new IllegalArgumentException("key can't be null");
+		final int slot = key.getSlot();
+		final Column c = slot < bySlot.length ? bySlot[slot] : null;
+		if (c != null && kind.isInstance(c))
+			return kind.cast(c);
+		final Plugin plugin = this.plugin.get();
+		if (plugin == null || key.getPlugin() != plugin)
+			throw new IllegalArgumentException(key + " is not a key of " + (plugin == null ? "this store" : plugin.getName()));
+		final Column col = kind == ObjectColumn.class ? objectColumn(key.getName(), key.getValueClass())
+				: column(key.getName(), kind, null);
+		if (slot >= bySlot.length)
+			bySlot = Arrays.copyOf(bySlot, Math.max(bySlot.length << 1, slot + 1));
+		bySlot[slot] = col;
+		return kind.cast(col);
+	}
+	
+	private <T> ObjectColumn<T> newObjectColumn(final String key, final Class<T> valueClass) {
+		return new ObjectColumn<T>(this, key, valueClass);
+	}
+	
+	// ===================
+	
+	int rowOf(final UUID id)
+	{
+		final Integer row = id == null ? null : rows.get(id);
+		return row == null ? -1 : row.intValue();
+	}
+	
+	private int rowFor(final UUID id)
+	{
+		final Integer row = rows.get(id);
+		if (row != null)
+			return row.intValue();
+		final int r = freeCount != 0 ? freeRows[--freeCount] : nextRow++;
+		if (r == rowIds.length)
+			rowIds = Arrays.copyOf(rowIds, r << 1);
+		rowIds[r] = id;
+		rows.put(id, Integer.valueOf(r));
+		return r;
+	}
+	
+	/**
+	 * Frees {@code row} (of {@code id}) if no column has a value in it any more. <i>O(columns)</i>
+	 */
+	void freeRowIfEmpty(final UUID id, final int row)
+	{
+		for (final Column c : columnList)
+			if (c.isSet(row))
+				return;
+		rows.remove(id);
+		freeRow(row);
+	}
+	
+	private void freeRow(final int row)
+	{
+		for (final Column c : columnList)
+			c.clear(row);
+		rowIds[row] = null;
+		if (freeCount == freeRows.length)
+			freeRows = Arrays.copyOf(freeRows, freeCount << 1);
+		freeRows[freeCount++] = row;
+	}
+	
+	/**
+	 * Removes all values stored for {@code entity}, and their {@link MetadataValue} proxies. <i>O(columns)</i>
+	 * @return {@code true} if there was anything stored for {@code entity}
+	 */
+	public boolean remove(final Entity entity)
+	{
+		if (entity == null)
+			return false;
+		final Integer row = rows.remove(entity.getUniqueId());
+		if (row == null)
+			return false;
+		final int r = row.intValue();
+		final Plugin plugin = this.plugin.get();
+		if (plugin != null)
+			for (final Column c : columnList)
+				if (c.isSet(r))
+					entity.removeMetadata(c.key, plugin);
+		freeRow(r);
+		return true;
+	}
+	
+	/**
+	 * Removes all values stored for {@code id}. <i>O(columns)</i>
+	 * <br>Use this when the entity is gone (e.g. unloaded): the proxies can't be unregistered without the entity, but
+	 * they will read as {@code null} / 0 from now on.
+	 * @return {@code true} if there was anything stored for {@code id}
+	 */
+	public boolean remove(final UUID id)
+	{
+		final Integer row = id == null ? null : rows.remove(id);
+		if (row == null)
+			return false;
+		freeRow(row.intValue());
+		return true;
+	}
+	
+	/**
+	 * Removes all values stored for all {@code entities}, and their {@link MetadataValue} proxies (e.g. on chunk
+	 * unload). <i>O(entities * columns)</i>
+	 * @return the number of entities that had anything stored
+	 * @throws NullPointerException if {@code entities} is {@code null}
+	 */
+	public int removeAll(final Collection<? extends Entity> entities)
+	{
+		int count = 0;
+		for (final Entity entity : entities)
+			if (remove(entity))
+				++count;
+		return count;
+	}
+	
+	/**
+	 * Check if anything is stored for {@code id}. <i>O(1)</i>
+	 */
+	public boolean contains(final UUID id) {
+		return rowOf(id) >= 0;
+	}
+	
+	/**
+	 * Number of entities that have something stored.
+	 */
+	public int size() {
+		return rows.size();
+	}
+	
+	/**
+	 * Removes everything from the store. <i>(Like {@link #remove(UUID)}, so proxies are left registered.)</i>
+	 */
+	public void clear()
+	{
+		for (final Integer row : rows.values())
+			freeRow(row.intValue());
+		rows.clear();
+	}
+}
@@ -0,0 +1,281 @@
+package nu.mine.obsidian.aztb.bukkit.monitor.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+import nu.mine.obsidian.aztb.collections.v1_0.FixedStatisticalFlowLong;
+import nu.mine.obsidian.aztb.tools.v1_0.NanoTimer;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Measures server health (TPS and tick intervals) with a repeating 1-tick task.
+ * <p/>The time between two consecutive runs of the task (the tick interval) is recorded into a
+ * {@link FixedStatisticalFlowLong} holding the last 8192 ticks (about 6.8 minutes at 20 TPS), giving:
+ * <ul>
+ *  <li>TPS over the last 5 seconds, 1 minute and 5 minutes: <i>O(1)</i> (running sums)</li>
+ *  <li>tick interval mean / max / percentiles: <i>O(1)</i></li>
+ *  <li>a callback to {@link ILagSpikeListener ILagSpikeListeners} whenever a tick interval is longer than
+ *      {@link #setLagSpikeThreshold(long) the threshold}</li>
+ * </ul>
+ * <i>Note: These are tick intervals, not the time the server spent working on each tick (mspt): the interval is
+ * ~50 ms whenever the server keeps up, and only grows past that (to the mspt) when it falls behind. So interval
+ * percentiles show lag, but not how close to the limit a healthy server is running. (Bukkit has no tick start / end
+ * hooks to measure mspt with.)
+ * <br>All methods (except listener (un)registration) must be called from the main server thread.</i>
+ * @author AnorZaken
+ * @version 1.0
+ */
+public final class TickMonitor implements Runnable
+{
+	/**
+	 * Callback for tick intervals longer than the {@link TickMonitor#setLagSpikeThreshold(long) threshold}.
+	 * @author AnorZaken
+	 */
+	public static interface ILagSpikeListener
+	{
+		/**
+		 * Called on the main server thread, in the tick after the lag spike.
+		 * @param monitor the {@link TickMonitor} that detected the spike
+		 * @param intervalNanos the tick interval in nanoseconds
+		 */
+		public void onLagSpike(TickMonitor monitor, long intervalNanos);
+	}
+	
+	// ===================
+	
+	/**
+	 * Window index for {@link #getTPS(int)}.
+	 */
+	public static final int WINDOW_5S = 0, WINDOW_1M = 1, WINDOW_5M = 2;
+	
+	private static final long[] WINDOW_NANOS = { 5000000000L, 60000000000L, 300000000000L };
+	private static final double TICK_NANOS = 50000000d;
+	
+	private final Plugin plugin;
+	private final FixedStatisticalFlowLong intervals = new FixedStatisticalFlowLong(8192);
+	private final NanoTimer timer = new NanoTimer();
+	private final long[] windowSum = new long[WINDOW_NANOS.length];
+	private final int[] windowCount = new int[WINDOW_NANOS.length];
+	
+	private final CopyOnWriteArrayList<ILagSpikeListener> listeners = new CopyOnWriteArrayList<ILagSpikeListener>();
+	private long lagSpikeNanos = 100000000L;
+	private long lagSpikes = 0L;
+	
+	private BukkitTask task = null;
+	
+	// ===================
+	
+	/**
+	 * Create a {@link TickMonitor}. (Call {@link #start()} to start measuring.)
+	 * @param plugin plugin to schedule the measuring task for
+	 * @throws IllegalArgumentException if {@code plugin} is {@code null}
+	 */
+	public TickMonitor(final Plugin plugin)
+	{
+		if (plugin == null)
+			throw new IllegalArgumentException("plugin can't be null");
+		this.plugin = plugin;
+	}
+	
+	/**
+	 * Starts the repeating 1-tick task. (Does nothing if already started.)
+	 */
+	public void start()
+	{
+		if (task != null)
+			return;
+		timer.reset();
+		task = plugin.getServer().getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+	}
+	
+	/**
+	 * Stops the repeating task. Measurements are kept (but a new {@link #start()} won't count the time in between).
+	 */
+	public void stop()
+	{
+		if (task == null)
+			return;
+		task.cancel();
+		task = null;
+	}
+	
+	public boolean isRunning() {
+		return task != null;
+	}
+	
+	/**
+	 * <i>Called by the scheduler every tick - don't call this yourself.</i>
+	 */
+	@Override
+	public void run()
+	{
+		final long interval = timer.elapsedNanoSeconds_Full(); //0 on the first run
+		timer.start();
+		if (interval > 0L)
+			record(interval);
+	}
+	
+	private void record(final long interval)
+	{
+		final long evicted = intervals.getLength() == intervals.getCapacity() ? intervals.get(0) : 0L;
+		intervals.add(interval);
+		final int length = intervals.getLength();
+		for (int w = 0; w < WINDOW_NANOS.length; ++w)
+		{
+			long sum = windowSum[w] + interval;
+			int count = windowCount[w] + 1;
+			if (count > length) { //oldest tick of the window left the flow (only if TPS > 27 for the 5m window)
+				sum -= evicted;
+				--count;
+			}
+			//drop the oldest tick while the window is still covered without it
+			while (count > 1) {
+				final long oldest = intervals.get(length - count);
+				if (sum - oldest < WINDOW_NANOS[w])
+					break;
+				sum -= oldest;
+				--count;
+			}
+			windowSum[w] = sum;
+			windowCount[w] = count;
+		}
+		
+		if (interval >= lagSpikeNanos)
+		{
+			++lagSpikes;
+			for (final ILagSpikeListener listener : listeners) {
+				try {
+					listener.onLagSpike(this, interval);
+				} catch (final RuntimeException ex) {
+					plugin.getLogger().log(Level.SEVERE, "Lag spike listener " + listener + " failed", ex);
+				}
+			}
+		}
+	}
+	
+	// ===================
+	
+	/**
+	 * Register a lag spike listener. <i>(Any thread.)</i>
+	 * @throws IllegalArgumentException if {@code listener} is {@code null}
+	 */
+	public void addLagSpikeListener(final ILagSpikeListener listener)
+	{
+		if (listener == null)
+			throw new IllegalArgumentException("listener can't be null");
+		listeners.addIfAbsent(listener);
+	}
+	
+	/**
+	 * Unregister a lag spike listener. <i>(Any thread.)</i>
+	 */
+	public void removeLagSpikeListener(final ILagSpikeListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Set the tick interval (in milliseconds) at or above which a tick counts as a lag spike. (Default 100 ms.)
+	 * @throws IllegalArgumentException if {@code millis} is not positive
+	 */
+	public void setLagSpikeThreshold(final long millis)
+	{
+		if (millis <= 0L)
+			throw new IllegalArgumentException("Illegal threshold: " + millis);
+		lagSpikeNanos = millis * 1000000L;
+	}
+	
+	public long getLagSpikeThreshold() {
+		return lagSpikeNanos / 1000000L;
+	}
+	
+	/**
+	 * Number of lag spikes since creation.
+	 */
+	public long getLagSpikeCount() {
+		return lagSpikes;
+	}
+	
+	// ===================
+	
+	/**
+	 * Average ticks per second over a window. (Over the time measured so far, if that is shorter than the window.)
+	 * <br><i>Not capped at 20 - a value slightly above 20 just means the scheduler ran early.</i>
+	 * @param window {@link #WINDOW_5S}, {@link #WINDOW_1M} or {@link #WINDOW_5M}
+	 * @return TPS, or 20 if nothing has been measured yet
+	 * @throws IndexOutOfBoundsException if {@code window} is not a valid window
+	 */
+	public double getTPS(final int window)
+	{
+		final long sum = windowSum[window];
+		return sum == 0L ? 1000000000d / TICK_NANOS : windowCount[window] * 1000000000d / sum;
+	}
+	
+	public double getTPS5s() {
+		return getTPS(WINDOW_5S);
+	}
+	
+	public double getTPS1m() {
+		return getTPS(WINDOW_1M);
+	}
+	
+	public double getTPS5m() {
+		return getTPS(WINDOW_5M);
+	}
+	
+	/**
+	 * The last tick interval in milliseconds, or 0 if nothing has been measured yet.
+	 */
+	public double getLastTickIntervalMillis() {
+		return intervals.getLength() == 0 ? 0d : intervals.get(intervals.getLength() - 1) / 1000000d;
+	}
+	
+	/**
+	 * Mean tick interval (over the last 8192 ticks) in milliseconds.
+	 */
+	public double getMeanTickIntervalMillis() {
+		return intervals.getMean() / 1000000d;
+	}
+	
+	/**
+	 * Longest tick interval (within the last 8192 ticks) in milliseconds.
+	 */
+	public double getMaxTickIntervalMillis() {
+		return intervals.getMax() / 1000000d;
+	}
+	
+	/**
+	 * Approximate (within ~6%) tick interval at {@code percentile} (over the last 8192 ticks) in milliseconds.
+	 * @param percentile [0 to 100]
+	 * @throws IllegalArgumentException if {@code percentile} is out of range
+	 */
+	public double getTickIntervalMillisPercentile(final double percentile) {
+		return intervals.getPercentile(percentile) / 1000000d;
+	}
+	
+	/**
+	 * Number of ticks currently held (max 8192).
+	 */
+	public int getTickCount() {
+		return intervals.getLength();
+	}
+}
@@ -0,0 +1,334 @@
+package nu.mine.obsidian.aztb.collections.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.NoSuchElementException;
+
+/* GENERATED from codegen/ArrayBlockQueue.template by codegen/GenerateBlockQueues.java
+ * Don't edit this file directly - edit the template and re-run the generator!
+ */
+
+/**
+ * A {@link BasicQueue} implemented as a growable ring of fixed-size (power of 2) {@code int} arrays.
+ * </p>Rationale:<ul>
+ *  <li>A (pure) LinkedList has higher memory footprint (many links, boxing of each element stored)</li>
+ *  <li>An Array has a growing worst-case delay when resizing (not optimal for real-time + large collections)</li>
+ *  <li>This is intended as compromise between the two... (medium memory-footprint, worst-case kept in check by
+ *      "<code>blockSize</code>" - see {@link #ArrayBlockQueueInt(int)})</li>
+ * </ul>
+ * Growing the ring only copies block references (never elements), and blocks freed by {@link #poll()} are kept in
+ * a small pool and reused by {@link #add(Integer)}, so a queue that stays around the same size stops allocating.
+ * </p><i>Use {@link #addInt(int)}, {@link #peekInt()} and {@link #pollInt()} to avoid boxing.</i>
+ * @author AnorZaken
+ * @version 1.0
+ * 
+ * @see BasicQueue
+ */
+public final class ArrayBlockQueueInt implements BasicQueue<Integer>
+{
+	private static final int INITIAL_RING_LENGTH = 4; //must be power of 2
+	private static final int DEFAULT_POOL_SIZE = 2;
+	
+	private final int blockShift; // log2(blockSize)
+	private final int blockMask; // blockSize - 1
+	
+	private int[][] ring; // length is power of 2, null where no block is in use
+	private int posMask; // (ring.length * blockSize) - 1
+	
+	private int head; // position of the first element [0 to posMask]
+	private int tail; // position where the next element goes [0 to posMask]
+	private int size;
+	
+	private final int[][] pool;
+	private int pooled;
+	
+	/**
+	 * Construct an {@link ArrayBlockQueueInt} with the specified <code>blockSize</code>.
+	 * @param blockSize <ul><li>Small: best worst-case performance (Recommended)</li>
+	 *  <li>Medium: slightly better memory efficiency for large collections</li>
+	 *  <li>Large: just bad... no benefits. (Don't do this!)</li></ul>
+	 *  (Without performance testing on target hardware it's impossible to give numbers.)
+	 *  <br><i>Rounded up to nearest power of 2.</i>
+	 */
+	public ArrayBlockQueueInt(int blockSize) {
+		this(blockSize, DEFAULT_POOL_SIZE);
+	}
+	
+	/**
+	 * Construct an {@link ArrayBlockQueueInt} with the specified <code>blockSize</code>.
+	 * @param blockSize see {@link #ArrayBlockQueueInt(int)}
+	 * @param poolSize max number of freed blocks kept around for reuse (0 disables pooling)
+	 */
+	public ArrayBlockQueueInt(int blockSize, int poolSize)
+	{
+		if(blockSize <= 0)
+			throw new IllegalArgumentException("blockSize must be greater than zero");
+		if(blockSize > (1 << 24))
+			throw new IllegalArgumentException("blockSize too large: " + blockSize);
+		if(poolSize < 0)
+			throw new IllegalArgumentException("poolSize can't be negative");
+		
+		final int bs = roundUpToPowerOf2(blockSize);
+		blockShift = Integer.numberOfTrailingZeros(bs);
+		blockMask = bs - 1;
+		
+		ring = new int[INITIAL_RING_LENGTH][];
+		posMask = (INITIAL_RING_LENGTH << blockShift) - 1;
+		pool = new int[poolSize][];
+		
+		head = 0;
+		tail = 0;
+		size = 0;
+	}
+	
+	// ---------------------------------------
+	
+	private static int roundUpToPowerOf2(int number)
+	{
+		final int rounded = Integer.highestOneBit(number);
+		return rounded == number ? rounded : rounded << 1;
+	}
+	
+	/**
+	 * Get the (power of 2) block size of this queue.
+	 */
+	public int getBlockSize() {
+		return blockMask + 1;
+	}
+	
+	// ---------------------------------------
+	
+	/**
+	 * Puts a block at the ring slot of {@link #tail}. (Tail is at the start of a block.)
+	 */
+	private void addBlock()
+	{
+		if(size != 0 && (tail >>> blockShift) == (head >>> blockShift))
+			growRing();
+		ring[tail >>> blockShift] = pooled == 0 ? new int[blockMask + 1] : pool[--pooled];
+	}
+	
+	/**
+	 * Removes the block at ring slot {@code slot}, keeping it in the pool if there is room.
+	 */
+	private void removeBlock(final int slot)
+	{
+		final int[] block = ring[slot];
+		ring[slot] = null;
+		if(pooled < pool.length)
+			pool[pooled++] = block;
+	}
+	
+	/**
+	 * Doubles the ring length, laying out the used blocks from the start of the new ring. (Only references are copied.)
+	 */
+	private void growRing()
+	{
+		final int length = ring.length;
+		if(((long) length << (blockShift + 1)) > (1 << 30))
+			throw new IllegalStateException("queue is too large");
+		
+		final int[][] grown = new int[length << 1][];
+		final int headSlot = head >>> blockShift;
+		for(int i = 0; i < length; ++i)
+			grown[i] = ring[(headSlot + i) & (length - 1)];
+		
+		ring = grown;
+		posMask = (grown.length << blockShift) - 1;
+		head &= blockMask;
+		tail = length << blockShift;
+	}
+	
+	// -----------------------------------------
+
+	/**
+	 * Adds {@code value} to the end of the queue. <i>(No boxing.)</i>
+	 */
+	public void addInt(final int value)
+	{
+		if((tail & blockMask) == 0)
+			addBlock();
+		ring[tail >>> blockShift][tail & blockMask] = value;
+		tail = (tail + 1) & posMask;
+		++size;
+	}
+	
+	/**
+	 * Retrieves the first element of the queue without removing it. <i>(No boxing.)</i>
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public int peekInt()
+	{
+		if(size == 0)
+			throw new NoSuchElementException();
+		return ring[head >>> blockShift][head & blockMask];
+	}
+	
+	/**
+	 * Retrieves and removes the first element of the queue. <i>(No boxing.)</i>
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public int pollInt()
+	{
+		if(size == 0)
+			throw new NoSuchElementException();
+		final int slot = head >>> blockShift;
+		final int value = ring[slot][head & blockMask];
+		head = (head + 1) & posMask;
+		--size;
+		if((head & blockMask) == 0)
+			removeBlock(slot);
+		return value;
+	}
+	
+	@Override
+	public boolean add(Integer value)
+	{
+		addInt(value);
+		return true;
+	}
+	
+	@Override
+	public Integer peek()
+	{
+		if(size == 0)
+			return null;
+		else
+			return ring[head >>> blockShift][head & blockMask];
+	}
+	
+	@Override
+	public Integer poll()
+	{
+		if(size == 0)
+			return null;
+		else
+			return pollInt();
+	}
+	
+	@Override
+	public void thrash()
+	{
+		if(size == 0)
+			return;
+		final int slot = head >>> blockShift;
+		head = (head + 1) & posMask;
+		--size;
+		if((head & blockMask) == 0)
+			removeBlock(slot);
+	}
+	
+	@Override
+	public void clear()
+	{
+		for(int i = 0; i < ring.length; ++i)
+			if(ring[i] != null)
+				removeBlock(i);
+		head = 0;
+		tail = 0;
+		size = 0;
+	}
+	
+	// -----------------------------------------
+	
+	/**
+	 * Adds {@code len} elements from {@code src} (starting at {@code off}) to the end of the queue.
+	 * <br><i>Copies whole block segments with {@link System#arraycopy(Object, int, Object, int, int)}.</i>
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code len} don't describe a range inside {@code src}
+	 */
+	public void addAll(final int[] src, int off, int len)
+	{
+		if(off < 0 || len < 0 || off > src.length - len)
+			throw new IndexOutOfBoundsException();
+		while(len > 0)
+		{
+			if((tail & blockMask) == 0)
+				addBlock();
+			final int pos = tail & blockMask;
+			final int n = Math.min(len, blockMask + 1 - pos);
+			System.arraycopy(src, off, ring[tail >>> blockShift], pos, n);
+			tail = (tail + n) & posMask;
+			size += n;
+			off += n;
+			len -= n;
+		}
+	}
+	
+	/**
+	 * Retrieves and removes up to {@code max} elements from the queue, putting them into {@code dst} (starting at
+	 * {@code off}).
+	 * <br><i>Copies whole block segments with {@link System#arraycopy(Object, int, Object, int, int)}.</i>
+	 * @return the number of elements removed
+	 * @throws IndexOutOfBoundsException if {@code off} and {@code max} don't describe a range inside {@code dst}
+	 */
+	public int poll(final int[] dst, final int off, final int max)
+	{
+		if(off < 0 || max < 0 || off > dst.length - max)
+			throw new IndexOutOfBoundsException();
+		int total = 0;
+		while(total < max && size != 0)
+		{
+			final int slot = head >>> blockShift;
+			final int pos = head & blockMask;
+			final int n = Math.min(Math.min(max - total, size), blockMask + 1 - pos);
+			System.arraycopy(ring[slot], pos, dst, off + total, n);
+			head = (head + n) & posMask;
+			size -= n;
+			total += n;
+			if((head & blockMask) == 0)
+				removeBlock(slot);
+		}
+		return total;
+	}
+	
+	/**
+	 * Removes (up to) the top {@code n} elements of the queue without retrieving them, a block segment at a time.
+	 * @return the number of elements removed
+	 * @see #thrash()
+	 */
+	public int thrash(final int n)
+	{
+		int total = 0;
+		while(total < n && size != 0)
+		{
+			final int slot = head >>> blockShift;
+			final int pos = head & blockMask;
+			final int k = Math.min(Math.min(n - total, size), blockMask + 1 - pos);
+			head = (head + k) & posMask;
+			size -= k;
+			total += k;
+			if((head & blockMask) == 0)
+				removeBlock(slot);
+		}
+		return total;
+	}
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+}
@@ -24,6 +24,7 @@ package nu.mine.obsidian.aztb.collections.v1_0;
  * @version 1.0
  *
  * @param <E> Type stored in the BasicQueue
+ * @see ArrayBlockQueue
  * @see ArrayBlockQueueLong
  */
 public interface BasicQueue<E>
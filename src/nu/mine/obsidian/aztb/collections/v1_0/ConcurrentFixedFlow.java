@@ -0,0 +1,210 @@
+package nu.mine.obsidian.aztb.collections.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A flow* of {@link T &ltT&gt} elements with <b>one writer thread</b> and any number of lock-free reader threads.
+ * <p/>The writer (typically the main server thread) never blocks or takes a lock: every modification is bracketed
+ * by a sequence counter (odd while writing) using ordered writes only. Readers check the sequence counter before and
+ * after reading and simply retry if a write happened in between, so they always see a consistent state.
+ * <ul>
+ *  <li>Only <u>one</u> thread may call {@link #add(Object)} and {@link #set(int, Object)}. (The writer.)</li>
+ *  <li>All other methods can be called from any thread.</li>
+ * </ul>
+ * Elements are safely published, so readers also see the state an element had when it was added.
+ * <br><i>(Modifying an element after adding it is of course not covered by this.)</i>
+ * <p/><i>*A flow is a "cache" of the latest &#123{@link #getCapacity()}&#125 number of
+ * elements added to it. (Once it reaches full capacity continuing to add elements will always
+ * replace the oldest element in the flow.)</i>
+ *
+ * @author AnorZaken
+ * @version 1.0
+ *
+ * @param <T> Type stored in the flow
+ * @see FixedFlow
+ * @see ConcurrentFixedFlowLong
+ */
+public final class ConcurrentFixedFlow<T>
+{
+	private final AtomicReferenceArray<T> flow;
+	private final int CAP; //CAP must be power of 2
+	private final int MASK; //CAP - 1
+	
+	private final PaddedAtomicLong seq = new PaddedAtomicLong(0L); //odd while the writer is modifying the flow
+	private final PaddedAtomicLong added = new PaddedAtomicLong(0L); //total number of elements ever added
+	
+	// ===================
+	
+	/**
+	 * Create a {@link ConcurrentFixedFlow} with capacity of 128.
+	 */
+	public ConcurrentFixedFlow() {
+		this(128);
+	}
+	
+	/**
+	 * Create a {@link ConcurrentFixedFlow} with capacity {@code capacity} (rounded up to nearest power of 2).
+	 */
+	public ConcurrentFixedFlow(final int capacity)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		CAP = FixedFlow.roundUpToPowerOf2(capacity);
+		MASK = CAP - 1;
+		flow = new AtomicReferenceArray<T>(CAP);
+	}
+	
+	// ===================
+	
+	/**
+	 * Get the (power of 2) capacity of this flow.
+	 */
+	public int getCapacity() {
+		return CAP;
+	}
+	
+	/**
+	 * Get the current length of this flow.
+	 * <br><i>Note: Once the flow reaches full capacity it will never decrease in length.</i>
+	 */
+	public int getLength() {
+		return (int) Math.min(added.get(), CAP);
+	}
+	
+	/**
+	 * Adds the next element into the flow. <i>O(1) (Writer thread only!)</i><br>
+	 * If at full capacity this will replace the oldest element in the flow.
+	 * @param nextElement element to add
+	 */
+	public void add(final T nextElement)
+	{
+		final long s = seq.get();
+		final long n = added.get();
+		seq.lazySet(s + 1);
+		flow.lazySet((int) n & MASK, nextElement);
+		added.lazySet(n + 1);
+		seq.lazySet(s + 2);
+	}
+	
+	/**
+	 * Set element at index. <i>O(1) (Writer thread only!)
+	 * <br>Index 0 is the oldest element in the flow.</i>
+	 * @throws IndexOutOfBoundsException if {@code index} out of bounds
+	 */
+	public void set(final int index, final T element)
+	{
+		final long n = added.get();
+		final int size = (int) Math.min(n, CAP);
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException();
+		final long s = seq.get();
+		seq.lazySet(s + 1);
+		flow.lazySet((int) (n - size + index) & MASK, element);
+		seq.lazySet(s + 2);
+	}
+	
+	// ===================
+	
+	private long readBegin()
+	{
+		long s;
+		while (((s = seq.get()) & 1L) != 0L); //writer busy - spin (writes are only a handful of stores)
+		return s;
+	}
+	
+	/**
+	 * Get element at index. <i>O(1) (Any thread.)
+	 * <br>Index 0 is the oldest element in the flow.</i>
+	 * @throws IndexOutOfBoundsException if {@code index} out of bounds
+	 */
+	public T get(final int index)
+	{
+		long s, n;
+		T e;
+		int size;
+		do {
+			s = readBegin();
+			n = added.get();
+			size = (int) Math.min(n, CAP);
+			e = (index < 0 || index >= size) ? null : flow.get((int) (n - size + index) & MASK);
+		} while (s != seq.get());
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException();
+		return e;
+	}
+	
+	/**
+	 * Get the newest element in the flow, or <code>null</code> if the flow is empty. <i>O(1) (Any thread.)</i>
+	 */
+	public T getNewest()
+	{
+		long s, n;
+		T e;
+		do {
+			s = readBegin();
+			n = added.get();
+			e = n == 0L ? null : flow.get((int) (n - 1) & MASK);
+		} while (s != seq.get());
+		return e;
+	}
+	
+	/**
+	 * Copies a consistent snapshot of the flow into {@code dst}, oldest element first. <i>O(n) (Any thread.)</i>
+	 * <br><i>If {@code dst} is shorter than the flow only the newest {@code dst.length} elements are copied.</i>
+	 * @param dst destination array
+	 * <br><i>Elements in {@code dst} after the returned length are left untouched.</i>
+	 * @return the number of elements copied
+	 * @throws IllegalArgumentException if {@code dst} is {@code null}
+	 */
+	public int snapshot(final T[] dst)
+	{
+		if (dst == null)
+			throw new IllegalArgumentException("dst can't be null");
+		long s, n;
+		int len;
+		do {
+			s = readBegin();
+			n = added.get();
+			len = (int) Math.min(Math.min(n, CAP), dst.length);
+			for (int i = 0; i < len; ++i)
+				dst[i] = flow.get((int) (n - len + i) & MASK);
+		} while (s != seq.get());
+		return len;
+	}
+	
+	/**
+	 * Check if this flow contains {@code element} (same instance). <i>O(n) (Any thread.)</i>
+	 * @param element element to search for
+	 * @return <code>true</code> if this flow contains {@code element}, otherwise <code>false</code>.
+	 */
+	public boolean contains(final T element)
+	{
+		long s;
+		boolean found;
+		do {
+			s = readBegin();
+			found = false;
+			for (int i = (int) Math.min(added.get(), CAP) - 1; i >= 0 && !found; --i)
+				found = flow.get(i) == element;
+		} while (s != seq.get());
+		return found;
+	}
+}
@@ -35,6 +35,7 @@ public class FixedFlow<T>
 {
 	protected final T[] flow;
 	protected final int CAP; //CAP must be power of 2
+	protected final int MASK; //CAP - 1 (index & MASK == index % CAP)
 	protected int index; //After filling the array for the first time this is the index of the last stored entry
 	protected int size = 0;
 	
@@ -55,7 +56,8 @@ public class FixedFlow<T>
 		if (capacity < 0)
             throw new IllegalArgumentException("Illegal capacity: " + capacity);
 		CAP = roundUpToPowerOf2(capacity);
-		index = CAP - 1;
+		MASK = CAP - 1;
+		index = MASK;
 		@SuppressWarnings("unchecked")
 		T[] arr = (T[]) Array.newInstance(clazz, CAP);
 		this.flow = arr;
@@ -97,7 +99,7 @@ public class FixedFlow<T>
 		if(size < CAP)
 			flow[size++] = nextElement;
 		else
-			flow[index = ((index + 1)%CAP)] = nextElement;
+			flow[index = ((index + 1) & MASK)] = nextElement;
 	}
 	
 	/**
@@ -106,7 +108,7 @@ public class FixedFlow<T>
 	 */
 	public T get(final int index) //No bounds checking!
 	{
-		return flow[(this.index + index + 1) % CAP];
+		return flow[(this.index + index + 1) & MASK];
 	}
 	
 	/**
@@ -115,7 +117,7 @@ public class FixedFlow<T>
 	 */
 	public void set(final int index, final T element) //No bounds checking!
 	{
-		flow[(this.index + index + 1) % CAP] = element;
+		flow[(this.index + index + 1) & MASK] = element;
 	}
 	
 	/**
@@ -126,7 +128,7 @@ public class FixedFlow<T>
 	 */
 	public boolean contains(final T element)
 	{
-		for(int i = size; i >= 0; --i)
+		for(int i = size - 1; i >= 0; --i)
 			if(flow[i] == element)
 				return true;
 		return false;
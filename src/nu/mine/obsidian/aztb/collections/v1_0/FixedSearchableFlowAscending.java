@@ -18,13 +18,21 @@ package nu.mine.obsidian.aztb.collections.v1_0;
  * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
 */
 
+import java.util.NoSuchElementException;
+
 /**
  * A searchable flow* of <u>ascending</u> {@link IFlowElement IFlowElements}. 
  * <p/><i>*A flow is a "cache" of the latest &#123{@link #getCapacity()}&#125 number of
  * elements added to it. (Once it reaches full capacity continuing to add elements will always
  * replace the oldest element in the flow.) 
  * <p/>{@link #tryAdd(IFlowElement)} is O(1)<br>
- * {@link #find(Object)} is O(log2(capacity))</i>
+ * {@link #find(Object)} is O(log2(capacity))<br>
+ * {@link #findFromNewest(Object)} is O(log2(distance from newest element))<br>
+ * {@link #findInterpolated(long)} is O(log2(log2(capacity))) for evenly spaced keys (requires
+ * {@link INumericFlowElement INumericFlowElements})<br>
+ * {@link #indexOf(Object)}, {@link #floor(Object)}, {@link #ceiling(Object)} are O(log2(capacity))<br>
+ * {@link #forEachInRange(Object, Object, IConsumer)} and {@link RangeCursor} are O(log2(capacity) + k)
+ * for k elements in range</i>
  * 
  * @author AnorZaken
  * @version 1.0
@@ -32,6 +40,8 @@ package nu.mine.obsidian.aztb.collections.v1_0;
  * @param <U> Type used as "key" in {@link IFlowElement}
  * @param <T> {@link IFlowElement}&lt{@link U}&gt
  * @see IFlowElement
+ * @see INumericFlowElement
+ * @see RangeCursor
  */
 public final class FixedSearchableFlowAscending<U, T extends FixedSearchableFlowAscending.IFlowElement<U>>
 		extends FixedFlow<T>
@@ -58,6 +68,68 @@ public final class FixedSearchableFlowAscending<U, T extends FixedSearchableFlow
 		public int compareToKey(U key);
 	}
 	
+	/**
+	 * An {@link IFlowElement} whose key can also be expressed as a {@code long} (for example a timestamp).
+	 * <p/>The numeric keys must be ordered the same way as the keys, i.e. strictly ascending in the flow.
+	 * @author AnorZaken
+	 * @param <U> Type used as "key"
+	 * @see FixedSearchableFlowAscending#findInterpolated(long)
+	 */
+	public static interface INumericFlowElement<U> extends IFlowElement<U>
+	{
+		/**
+		 * Get the key for this element as a {@code long}.
+		 */
+		public long getNumericKey();
+	}
+	
+	/**
+	 * A reusable cursor over the elements whose keys are within a range (both ends inclusive), oldest first.
+	 * <p/>Create one with {@link FixedSearchableFlowAscending#newRangeCursor()} and {@link #reset(Object, Object)}
+	 * it for every query - iterating does not allocate anything.
+	 * <br><i>Adding elements to the flow while iterating is not supported (elements may be skipped or repeated).</i>
+	 * @author AnorZaken
+	 */
+	public final class RangeCursor
+	{
+		private int position; //physical index of next element
+		private int remaining;
+		
+		private RangeCursor() {}
+		
+		/**
+		 * Positions this cursor at the first element with a key &gt;= {@code from}.
+		 * <i>O(log2(capacity))</i>
+		 * @param from lowest key (inclusive)
+		 * @param to highest key (inclusive)
+		 * @return the number of elements in range
+		 */
+		public int reset(final U from, final U to)
+		{
+			final int lo = ceilingIndex(from);
+			final int hi = floorIndex(to);
+			position = (index + 1 + lo) & MASK;
+			return remaining = Math.max(0, hi - lo + 1);
+		}
+		
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+		
+		/**
+		 * @throws NoSuchElementException if there are no more elements in range
+		 */
+		public T next()
+		{
+			if (remaining <= 0)
+				throw new NoSuchElementException();
+			--remaining;
+			final T t = flow[position];
+			position = (position + 1) & MASK;
+			return t;
+		}
+	}
+	
 	// ===================
 	
 	/**
@@ -88,13 +160,13 @@ public final class FixedSearchableFlowAscending<U, T extends FixedSearchableFlow
 		if (nextElement == null)
 			return false;
 		if(size < CAP) {
-			if(size == 0 || flow[size].compareToKey(nextElement.getKey()) < 0) {
+			if(size == 0 || flow[size - 1].compareToKey(nextElement.getKey()) < 0) {
 				flow[size++] = nextElement;
 				return true;
 			}
 		}
 		else if(flow[index].compareToKey(nextElement.getKey()) < 0) {
-			flow[index = ((index + 1)%CAP)] = nextElement;
+			flow[index = ((index + 1) & MASK)] = nextElement;
 			return true;
 		}
 		return false;
@@ -111,33 +183,200 @@ public final class FixedSearchableFlowAscending<U, T extends FixedSearchableFlow
 		if(size == 0) //Edge-case: if array is empty!
 			return null;
 		
-		final int s = size - 1;
-		//Because array is power of 2 we can't split it evenly around a center element (right side has 1 more element)...
-		//...so check rightmost element first (also optimization because fairly likely that we requested latest element).
-		T t = flow[Math.min(index, s)];
-		if(t.compareToKey(key) == 0)
-			return t;
-		else if(t.compareToKey(key) < 0) //optimization: requested an element larger than the largest (=latest) stored element
+		//Check newest element first (fairly likely that we requested latest element)...
+		final int c = flow[(index + size) & MASK].compareToKey(key);
+		if(c == 0)
+			return flow[(index + size) & MASK];
+		else if(c < 0) //...requested an element larger than the largest (=latest) stored element
 			return null;
-		int i = index + CAP / 2;
-		for(int step = CAP / 4; step > 0; step = step / 2)
+		final int i = search(key, 0, size - 2);
+		return i < 0 ? null : flow[(index + 1 + i) & MASK];
+	}
+	
+	/**
+	 * Searches the flow for an element matching {@code key}, starting from the newest element and galloping
+	 * (1, 2, 4, 8... steps) towards older elements before doing a binary search.
+	 * <i>O(log2(d))</i> where d is the distance from the newest element.
+	 * <p/>Faster than {@link #find(Object)} when the sought element is usually among the most recent ones.
+	 * @param key {@link U} key of element searched for.
+	 * @return The sought element or <code>null</code> if no matching element currently exists in the flow.
+	 */
+	public T findFromNewest(final U key)
+	{
+		if(size == 0)
+			return null;
+		
+		final int first = index + 1;
+		int bound = size - 1; //element at bound is larger than key (after the first check)
+		int c = flow[(first + bound) & MASK].compareToKey(key);
+		if(c == 0)
+			return flow[(first + bound) & MASK];
+		else if(c < 0)
+			return null;
+		int probe;
+		for(int step = 1;; step <<= 1)
 		{
-			t = flow[Math.min(i%CAP, s)];
-			final int c = t.compareToKey(key);
+			probe = bound - step;
+			if(probe < 0) {
+				probe = -1;
+				break;
+			}
+			c = flow[(first + probe) & MASK].compareToKey(key);
 			if(c == 0)
-				return t;
-			else if(c > 0)
-				i -= step;
-			else
-				i += step;
+				return flow[(first + probe) & MASK];
+			else if(c < 0)
+				break;
+			bound = probe;
 		}
-		t = flow[Math.min(i%CAP, s)];
-		if(t.compareToKey(key) == 0)
-			return t;
+		final int i = search(key, probe + 1, bound - 1);
+		return i < 0 ? null : flow[(first + i) & MASK];
+	}
+	
+	/**
+	 * Searches the flow for an element with numeric key {@code numericKey} using interpolation search.
+	 * <i>O(log2(log2(capacity)))</i> when keys are roughly evenly spaced (like timestamps of periodic events).
+	 * <br><i>Falls back to bisection if the keys turn out to be skewed, so it is never worse than O(log2(capacity)).</i>
+	 * @param numericKey {@link INumericFlowElement#getNumericKey() numeric key} of element searched for.
+	 * @return The sought element or <code>null</code> if no matching element currently exists in the flow.
+	 * @throws ClassCastException if the elements in this flow are not {@link INumericFlowElement INumericFlowElements}
+	 */
+	public T findInterpolated(final long numericKey)
+	{
+		if(size == 0)
+			return null;
 		
+		final int first = index + 1;
+		int lo = 0, hi = size - 1;
+		long loKey = numericKeyAt(first + lo);
+		long hiKey = numericKeyAt(first + hi);
+		int interpolations = Integer.numberOfTrailingZeros(CAP) + 1; //then bisect
+		while(numericKey >= loKey && numericKey <= hiKey)
+		{
+			final int mid;
+			if(hiKey == loKey)
+				mid = lo;
+			else if(--interpolations < 0)
+				mid = (lo + hi) >>> 1;
+			else
+				mid = lo + (int) (((double) numericKey - loKey) / ((double) hiKey - loKey) * (hi - lo));
+			final long k = numericKeyAt(first + mid);
+			if(k == numericKey)
+				return flow[(first + mid) & MASK];
+			else if(k < numericKey) {
+				if((lo = mid + 1) > hi)
+					break;
+				loKey = numericKeyAt(first + lo);
+			}
+			else {
+				if((hi = mid - 1) < lo)
+					break;
+				hiKey = numericKeyAt(first + hi);
+			}
+		}
 		return null; //element matching key not found
 	}
 	
+	/**
+	 * Get the index of the element matching {@code key}. <i>O(log2(capacity))
+	 * <br>Index 0 is the oldest element in the flow.</i>
+	 * @param key {@link U} key of element searched for.
+	 * @return The index of the sought element or -1 if no matching element currently exists in the flow.
+	 */
+	public int indexOf(final U key)
+	{
+		final int i = search(key, 0, size - 1);
+		return i < 0 ? -1 : i;
+	}
+	
+	/**
+	 * Get the element with the greatest key less than or equal to {@code key}. <i>O(log2(capacity))</i>
+	 * @return The sought element or <code>null</code> if there is no such element in the flow.
+	 */
+	public T floor(final U key)
+	{
+		final int i = floorIndex(key);
+		return i < 0 ? null : flow[(index + 1 + i) & MASK];
+	}
+	
+	/**
+	 * Get the element with the smallest key greater than or equal to {@code key}. <i>O(log2(capacity))</i>
+	 * @return The sought element or <code>null</code> if there is no such element in the flow.
+	 */
+	public T ceiling(final U key)
+	{
+		final int i = ceilingIndex(key);
+		return i >= size ? null : flow[(index + 1 + i) & MASK];
+	}
+	
+	/**
+	 * Create a new (reusable) {@link RangeCursor} for this flow.
+	 */
+	public RangeCursor newRangeCursor() {
+		return new RangeCursor();
+	}
+	
+	/**
+	 * Passes every element with a key between {@code from} and {@code to} (both inclusive) to {@code consumer},
+	 * oldest first. <i>O(log2(capacity) + k)</i>
+	 * @return the number of elements passed to {@code consumer}
+	 * @throws IllegalArgumentException if {@code consumer} is {@code null}
+	 */
+	public int forEachInRange(final U from, final U to, final IConsumer<? super T> consumer)
+	{
+		if (consumer == null)
+			throw new IllegalArgumentException("consumer can't be null");
+		final int lo = ceilingIndex(from);
+		final int n = floorIndex(to) - lo + 1;
+		if (n <= 0)
+			return 0;
+		final T[] flow = this.flow;
+		final int start = (index + 1 + lo) & MASK;
+		final int end = Math.min(start + n, CAP); //first segment: [start, end)
+		for (int i = start; i < end; ++i)
+			consumer.accept(flow[i]);
+		for (int i = 0, e = n - (end - start); i < e; ++i) //second segment (wrapped around): [0, e)
+			consumer.accept(flow[i]);
+		return n;
+	}
+	
+	private int floorIndex(final U key) //-1 if none
+	{
+		final int i = search(key, 0, size - 1);
+		return i < 0 ? -i - 2 : i;
+	}
+	
+	private int ceilingIndex(final U key) //size if none
+	{
+		final int i = search(key, 0, size - 1);
+		return i < 0 ? -i - 1 : i;
+	}
+	
+	private long numericKeyAt(final int physicalIndex) {
+		return ((INumericFlowElement<?>) flow[physicalIndex & MASK]).getNumericKey();
+	}
+	
+	/**
+	 * Binary search (one compare per probe) between logical indices {@code lo} and {@code hi} (inclusive).
+	 * @return logical index of the matching element, or <code>-(insertion point) - 1</code> if not found.
+	 */
+	private int search(final U key, int lo, int hi)
+	{
+		final T[] flow = this.flow;
+		final int first = index + 1;
+		while(lo <= hi)
+		{
+			final int mid = (lo + hi) >>> 1;
+			final int c = flow[(first + mid) & MASK].compareToKey(key);
+			if(c < 0)
+				lo = mid + 1;
+			else if(c > 0)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -(lo + 1);
+	}
+	
 	// ===================
 	
 	/**
@@ -158,7 +397,7 @@ public final class FixedSearchableFlowAscending<U, T extends FixedSearchableFlow
 			}
 		}
 		else if(flow[index].compareToKey(nextElement.getKey()) < 0) {
-			flow[index = ((index + 1)%CAP)] = nextElement;
+			flow[index = ((index + 1) & MASK)] = nextElement;
 			return;
 		}
 		throw new IllegalArgumentException("nextElement not strictly ascending");
@@ -0,0 +1,241 @@
+package nu.mine.obsidian.aztb.collections.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * A {@link FixedFlowLong} that keeps statistics about the elements currently in the flow, updated incrementally on
+ * every {@link #add(long)}.
+ * <p/>Intended for rolling windows of (non-negative) durations, such as tick times in nanoseconds:
+ * <ul>
+ *  <li>{@link #getSum()}, {@link #getMean()}, {@link #getVariance()}, {@link #getStandardDeviation()}: <i>O(1)</i>
+ *      (running sum and sum of squares)</li>
+ *  <li>{@link #getMin()}, {@link #getMax()}: <i>O(1)</i> (monotonic deques, amortized O(1) per add)</li>
+ *  <li>{@link #getPercentile(double)}: <i>O(1)*</i> approximate, within ~6% of the true value (log-linear bucket
+ *      counts, updated as elements enter and leave the flow)</li>
+ * </ul>
+ * <i>*Walks at most {@value #GROUPS} + {@value #SUB_COUNT} counters, regardless of capacity.</i>
+ * <p/><i>Note: {@link #set(int, long)} is O(n) since the min/max deques have to be rebuilt.
+ * <br>Negative values are counted as 0 by the percentile sketch (all other statistics are exact).</i>
+ *
+ * @author AnorZaken
+ * @version 1.0
+ * @see FixedFlowLong
+ */
+public class FixedStatisticalFlowLong extends FixedFlowLong
+{
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS; //linear sub-buckets per power of 2
+	private static final int GROUPS = 64 - SUB_BITS; //group 0 holds [0 to SUB_COUNT-1], group g holds 2^(g+SUB_BITS-1) and up
+	
+	private final int[] buckets = new int[GROUPS * SUB_COUNT];
+	private final int[] groups = new int[GROUPS];
+	
+	private long sum = 0L;
+	private double sumOfSquares = 0d;
+	private long added = 0L; //sequence number of the next element (element with sequence s is stored at flow[s & MASK])
+	
+	private final long[] minDeque; //sequence numbers, values ascending from head
+	private int minHead = 0, minSize = 0;
+	private final long[] maxDeque; //sequence numbers, values descending from head
+	private int maxHead = 0, maxSize = 0;
+	
+	// ===================
+	
+	/**
+	 * Create a {@link FixedStatisticalFlowLong} with capacity of 128.
+	 */
+	public FixedStatisticalFlowLong() {
+		this(128);
+	}
+	
+	/**
+	 * Create a {@link FixedStatisticalFlowLong} with capacity {@code capacity} (rounded up to nearest power of 2).
+	 */
+	public FixedStatisticalFlowLong(final int capacity)
+	{
+		super(capacity);
+		minDeque = new long[CAP];
+		maxDeque = new long[CAP];
+	}
+	
+	// ===================
+	
+	private static int bucketOf(final long value)
+	{
+		if (value < SUB_COUNT)
+			return value <= 0L ? 0 : (int) value;
+		final int exp = 63 - Long.numberOfLeadingZeros(value);
+		final int group = exp - SUB_BITS + 1;
+		return (group << SUB_BITS) | (int) ((value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1));
+	}
+	
+	private static long bucketUpperBound(final int bucket)
+	{
+		final int group = bucket >>> SUB_BITS;
+		final int sub = bucket & (SUB_COUNT - 1);
+		if (group == 0)
+			return sub;
+		final int shift = group - 1;
+		return ((long) (SUB_COUNT + sub) << shift) + ((1L << shift) - 1L);
+	}
+	
+	private long valueOf(final long sequence) {
+		return flow[(int) sequence & MASK];
+	}
+	
+	private void count(final long value, final int delta)
+	{
+		final int bucket = bucketOf(value);
+		buckets[bucket] += delta;
+		groups[bucket >>> SUB_BITS] += delta;
+		sum += delta * value;
+		sumOfSquares += delta * ((double) value * value);
+	}
+	
+	private void pushDeques(final long sequence)
+	{
+		final long value = valueOf(sequence);
+		final long oldest = sequence + 1 - size; //sequence of the oldest element still in the flow
+		if (minSize != 0 && minDeque[minHead] < oldest) {
+			minHead = (minHead + 1) & MASK;
+			--minSize;
+		}
+		while (minSize != 0 && valueOf(minDeque[(minHead + minSize - 1) & MASK]) >= value)
+			--minSize;
+		minDeque[(minHead + minSize++) & MASK] = sequence;
+		
+		if (maxSize != 0 && maxDeque[maxHead] < oldest) {
+			maxHead = (maxHead + 1) & MASK;
+			--maxSize;
+		}
+		while (maxSize != 0 && valueOf(maxDeque[(maxHead + maxSize - 1) & MASK]) <= value)
+			--maxSize;
+		maxDeque[(maxHead + maxSize++) & MASK] = sequence;
+	}
+	
+	// ===================
+	
+	/**
+	 * Adds the next element into the flow and updates the statistics. <i>O(1) amortized</i><br>
+	 * If at full capacity this will replace the oldest element in the flow.
+	 * @param nextElement element to add
+	 */
+	@Override
+	public void add(final long nextElement)
+	{
+		if (size == CAP)
+			count(flow[(index + 1) & MASK], -1); //oldest element leaves the flow
+		super.add(nextElement);
+		count(nextElement, 1);
+		pushDeques(added++);
+	}
+	
+	/**
+	 * Set element at index and updates the statistics. <i>O(n)
+	 * <br>Index 0 is the oldest element in the flow.<br>Bounds <b>not</b> checked!</i>
+	 */
+	@Override
+	public void set(final int index, final long element)
+	{
+		count(get(index), -1);
+		super.set(index, element);
+		count(element, 1);
+		
+		minHead = minSize = maxHead = maxSize = 0;
+		final long next = added;
+		added -= size;
+		while (added != next)
+			pushDeques(added++);
+	}
+	
+	// ===================
+	
+	/**
+	 * Sum of all elements in the flow. <i>O(1)</i>
+	 */
+	public long getSum() {
+		return sum;
+	}
+	
+	/**
+	 * Mean of all elements in the flow, or 0 if the flow is empty. <i>O(1)</i>
+	 */
+	public double getMean() {
+		return size == 0 ? 0d : (double) sum / size;
+	}
+	
+	/**
+	 * (Population) variance of all elements in the flow, or 0 if the flow is empty. <i>O(1)</i>
+	 */
+	public double getVariance()
+	{
+		if (size == 0)
+			return 0d;
+		final double mean = (double) sum / size;
+		return Math.max(0d, sumOfSquares / size - mean * mean);
+	}
+	
+	/**
+	 * (Population) standard deviation of all elements in the flow, or 0 if the flow is empty. <i>O(1)</i>
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+	
+	/**
+	 * Smallest element in the flow, or 0 if the flow is empty. <i>O(1)</i>
+	 */
+	public long getMin() {
+		return minSize == 0 ? 0L : valueOf(minDeque[minHead]);
+	}
+	
+	/**
+	 * Largest element in the flow, or 0 if the flow is empty. <i>O(1)</i>
+	 */
+	public long getMax() {
+		return maxSize == 0 ? 0L : valueOf(maxDeque[maxHead]);
+	}
+	
+	/**
+	 * Approximate value at {@code percentile} (for example 95 for p95) of the elements in the flow, or 0 if the flow
+	 * is empty. <i>O(1)*</i>
+	 * <br><i>The result is the upper bound of the sketch bucket holding that rank (clamped to
+	 * [{@link #getMin()}, {@link #getMax()}]), so it is never lower than the true value.</i>
+	 * @param percentile [0 to 100]
+	 * @throws IllegalArgumentException if {@code percentile} is out of range
+	 */
+	public long getPercentile(final double percentile)
+	{
+		if (!(percentile >= 0d && percentile <= 100d))
+			throw new IllegalArgumentException("Illegal percentile: " + percentile);
+		if (size == 0)
+			return 0L;
+		final long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * size));
+		
+		long seen = 0L;
+		int group = 0;
+		while (seen + groups[group] < rank)
+			seen += groups[group++];
+		int bucket = group << SUB_BITS;
+		while ((seen += buckets[bucket]) < rank)
+			++bucket;
+		
+		return Math.max(getMin(), Math.min(getMax(), bucketUpperBound(bucket)));
+	}
+}
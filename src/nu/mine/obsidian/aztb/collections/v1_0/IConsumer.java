@@ -0,0 +1,36 @@
+package nu.mine.obsidian.aztb.collections.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * Callback that receives elements, one at a time, from bulk operations in this package.
+ * <p/><i>Implementations are typically reused for every call (so bulk operations don't need to allocate).</i>
+ * @author AnorZaken
+ * @version 1.0
+ *
+ * @param <E> Type of the elements received
+ * @see SpscArrayQueue#drainTo(IConsumer, int)
+ */
+public interface IConsumer<E>
+{
+	/**
+	 * Receives the next element.
+	 */
+	public void accept(E e);
+}
@@ -0,0 +1,203 @@
+package nu.mine.obsidian.aztb.collections.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, <b>multi-producer / single-consumer</b> {@link BasicQueue}.
+ * <p/>Same as {@link SpscArrayQueue} except any number of threads may call {@link #add(Object)} concurrently.
+ * (Producers claim slots with a CAS, so there is some contention between producers - but never with the consumer.)
+ * <ul>
+ *  <li>Any thread may call {@link #add(Object)}. (The producers.)</li>
+ *  <li>Only <u>one</u> thread may call {@link #peek()}, {@link #poll()}, {@link #thrash()}, {@link #clear()} and
+ *      {@link #drainTo(IConsumer, int)}. (The consumer.)</li>
+ *  <li>{@link #size()} and {@link #isEmpty()} can be called from any thread, but are only estimates.</li>
+ * </ul>
+ * <i>Note: an element whose producer has claimed a slot but not yet written to it is treated as not yet added, so
+ * {@link #poll()} may return {@code null} even though {@link #isEmpty()} just returned {@code false}.</i>
+ * @author AnorZaken
+ * @version 1.0
+ *
+ * @param <E> Type stored in the queue
+ * @see SpscArrayQueue
+ */
+public final class MpscArrayQueue<E> implements BasicQueue<E>
+{
+	private final AtomicReferenceArray<E> buffer;
+	private final int mask;
+	
+	private final PaddedAtomicLong producerIndex = new PaddedAtomicLong(0L);
+	private final PaddedAtomicLong consumerIndex = new PaddedAtomicLong(0L);
+	
+	/**
+	 * Create a {@link MpscArrayQueue} with capacity {@code capacity} (rounded up to nearest power of 2).
+	 */
+	public MpscArrayQueue(final int capacity)
+	{
+		if (capacity <= 0 || capacity > (1 << 30))
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		final int cap = Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+		buffer = new AtomicReferenceArray<E>(cap);
+		mask = cap - 1;
+	}
+	
+	// ===================
+	
+	/**
+	 * Get the (power of 2) capacity of this queue.
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+	
+	/**
+	 * Adds an element to the queue. <i>(Any thread.)</i>
+	 * @param e a non-<code>null</code> element
+	 * @return {@code true} if the element was added, {@code false} if the queue is full
+	 * @throws IllegalArgumentException if {@code e} is {@code null}
+	 */
+	@Override
+	public boolean add(final E e)
+	{
+		if (e == null)
+			throw new IllegalArgumentException("e can't be null");
+		long p;
+		do {
+			p = producerIndex.get();
+			if (p - consumerIndex.get() > mask)
+				return false; //full
+		} while (!producerIndex.compareAndSet(p, p + 1));
+		buffer.lazySet((int) p & mask, e); //publishes the element
+		return true;
+	}
+	
+	/**
+	 * <i>(Consumer thread only!)</i>
+	 */
+	@Override
+	public E peek() {
+		return buffer.get((int) consumerIndex.get() & mask);
+	}
+	
+	/**
+	 * <i>(Consumer thread only!)</i>
+	 */
+	@Override
+	public E poll()
+	{
+		final long c = consumerIndex.get();
+		final int i = (int) c & mask;
+		final E e = buffer.get(i);
+		if (e == null)
+			return null; //empty (or next producer not done writing yet)
+		buffer.lazySet(i, null);
+		consumerIndex.lazySet(c + 1); //frees the slot
+		return e;
+	}
+	
+	/**
+	 * <i>(Consumer thread only!)</i>
+	 */
+	@Override
+	public void thrash() {
+		poll();
+	}
+	
+	/**
+	 * Removes (up to) the top {@code n} elements of the queue without retrieving them. The consumer index is only
+	 * published once, at the end. <i>(Consumer thread only!)</i>
+	 * @return the number of elements removed
+	 * @see #thrash()
+	 */
+	public int thrash(final int n)
+	{
+		final long c = consumerIndex.get();
+		int k = 0;
+		while (k < n) {
+			final int i = (int) (c + k) & mask;
+			if (buffer.get(i) == null)
+				break;
+			buffer.lazySet(i, null);
+			++k;
+		}
+		if (k != 0)
+			consumerIndex.lazySet(c + k);
+		return k;
+	}
+	
+	/**
+	 * Retrieves and removes up to {@code max} elements from the queue, passing each one to {@code consumer}.
+	 * The consumer index is only published once, at the end. <i>(Consumer thread only!)</i>
+	 * @param consumer receives the elements (oldest first)
+	 * @param max max number of elements to remove
+	 * @return the number of elements removed
+	 */
+	public int drainTo(final IConsumer<? super E> consumer, final int max)
+	{
+		if (consumer == null)
+			throw new IllegalArgumentException("consumer can't be null");
+		final AtomicReferenceArray<E> buffer = this.buffer;
+		final long c = consumerIndex.get();
+		int k = 0;
+		try {
+			while (k < max) {
+				final int i = (int) (c + k) & mask;
+				final E e = buffer.get(i);
+				if (e == null)
+					break;
+				buffer.lazySet(i, null);
+				++k;
+				consumer.accept(e);
+			}
+		} finally {
+			if (k != 0)
+				consumerIndex.lazySet(c + k); //if consumer throws, only what it has seen is removed
+		}
+		return k;
+	}
+	
+	/**
+	 * Removes all elements currently in the queue. <i>(Consumer thread only!)</i>
+	 */
+	@Override
+	public void clear()
+	{
+		while (poll() != null);
+	}
+	
+	/**
+	 * Estimated number of elements in the queue (including elements that producers are still writing).
+	 */
+	@Override
+	public int size()
+	{
+		long c, p;
+		do {
+			c = consumerIndex.get();
+			p = producerIndex.get();
+		} while (c != consumerIndex.get());
+		return (int) Math.max(0L, Math.min(p - c, mask + 1L));
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return consumerIndex.get() >= producerIndex.get();
+	}
+}
@@ -0,0 +1,43 @@
+package nu.mine.obsidian.aztb.collections.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link AtomicLong} padded to fill (at least) a cache line, so that indices written by different threads
+ * don't end up sharing one.
+ * <br>Also has room for one plain {@link #cache} value owned by the thread that writes this index.
+ * @author AnorZaken
+ */
+@SuppressWarnings("serial")
+final class PaddedAtomicLong extends AtomicLong
+{
+	/**
+	 * Plain (non-volatile) field for the owning thread, typically a cached copy of the <i>other</i> index.
+	 */
+	long cache;
+	
+	@SuppressWarnings("unused")
+	private long p1, p2, p3, p4, p5, p6, p7;
+	
+	PaddedAtomicLong(final long initialValue) {
+		super(initialValue);
+	}
+}
@@ -0,0 +1,212 @@
+package nu.mine.obsidian.aztb.collections.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * A bounded, lock-free, <b>single-producer / single-consumer</b> {@link BasicQueue}.
+ * <p/>Intended for handing data from one async thread over to the main server thread (or the other way around):
+ * <ul>
+ *  <li>Only <u>one</u> thread may call {@link #add(Object)}. (The producer.)</li>
+ *  <li>Only <u>one</u> thread may call {@link #peek()}, {@link #poll()}, {@link #thrash()}, {@link #clear()} and
+ *      {@link #drainTo(IConsumer, int)}. (The consumer.)</li>
+ *  <li>{@link #size()} and {@link #isEmpty()} can be called from any thread, but are only estimates.</li>
+ * </ul>
+ * The producer and consumer indices live on separate (padded) cache lines and are published with ordered writes,
+ * so neither side ever blocks or takes a lock. Use {@link #drainTo(IConsumer, int)} to empty the queue in one pass.
+ * @author AnorZaken
+ * @version 1.0
+ *
+ * @param <E> Type stored in the queue
+ * @see MpscArrayQueue
+ */
+public final class SpscArrayQueue<E> implements BasicQueue<E>
+{
+	private final E[] buffer;
+	private final int mask;
+	
+	private final PaddedAtomicLong producerIndex = new PaddedAtomicLong(0L); //cache: last seen consumerIndex
+	private final PaddedAtomicLong consumerIndex = new PaddedAtomicLong(0L); //cache: last seen producerIndex
+	
+	/**
+	 * Create a {@link SpscArrayQueue} with capacity {@code capacity} (rounded up to nearest power of 2).
+	 */
+	public SpscArrayQueue(final int capacity)
+	{
+		if (capacity <= 0 || capacity > (1 << 30))
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		final int cap = Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+		@SuppressWarnings("unchecked")
+		final E[] arr = (E[]) new Object[cap];
+		buffer = arr;
+		mask = cap - 1;
+	}
+	
+	// ===================
+	
+	/**
+	 * Get the (power of 2) capacity of this queue.
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+	
+	/**
+	 * Adds an element to the queue. <i>(Producer thread only!)</i>
+	 * @param e a non-<code>null</code> element
+	 * @return {@code true} if the element was added, {@code false} if the queue is full
+	 * @throws IllegalArgumentException if {@code e} is {@code null}
+	 */
+	@Override
+	public boolean add(final E e)
+	{
+		if (e == null)
+			throw new IllegalArgumentException("e can't be null");
+		final long p = producerIndex.get();
+		if (p - producerIndex.cache > mask) {
+			producerIndex.cache = consumerIndex.get();
+			if (p - producerIndex.cache > mask)
+				return false; //full
+		}
+		buffer[(int) p & mask] = e;
+		producerIndex.lazySet(p + 1); //publishes the element
+		return true;
+	}
+	
+	/**
+	 * <i>(Consumer thread only!)</i>
+	 */
+	@Override
+	public E peek()
+	{
+		final long c = consumerIndex.get();
+		if (c >= consumerIndex.cache) {
+			consumerIndex.cache = producerIndex.get();
+			if (c >= consumerIndex.cache)
+				return null; //empty
+		}
+		return buffer[(int) c & mask];
+	}
+	
+	/**
+	 * <i>(Consumer thread only!)</i>
+	 */
+	@Override
+	public E poll()
+	{
+		final long c = consumerIndex.get();
+		if (c >= consumerIndex.cache) {
+			consumerIndex.cache = producerIndex.get();
+			if (c >= consumerIndex.cache)
+				return null; //empty
+		}
+		final int i = (int) c & mask;
+		final E e = buffer[i];
+		buffer[i] = null;
+		consumerIndex.lazySet(c + 1); //frees the slot
+		return e;
+	}
+	
+	/**
+	 * <i>(Consumer thread only!)</i>
+	 */
+	@Override
+	public void thrash() {
+		poll();
+	}
+	
+	/**
+	 * Removes (up to) the top {@code n} elements of the queue without retrieving them. The consumer index is only
+	 * published once, at the end. <i>(Consumer thread only!)</i>
+	 * @return the number of elements removed
+	 * @see #thrash()
+	 */
+	public int thrash(final int n)
+	{
+		final long c = consumerIndex.get();
+		final int k = (int) Math.min((consumerIndex.cache = producerIndex.get()) - c, n);
+		if (k <= 0)
+			return 0;
+		for (int i = 0; i < k; ++i)
+			buffer[(int) (c + i) & mask] = null;
+		consumerIndex.lazySet(c + k);
+		return k;
+	}
+	
+	/**
+	 * Retrieves and removes up to {@code max} elements from the queue, passing each one to {@code consumer}.
+	 * The consumer index is only published once, at the end. <i>(Consumer thread only!)</i>
+	 * @param consumer receives the elements (oldest first)
+	 * @param max max number of elements to remove
+	 * @return the number of elements removed
+	 */
+	public int drainTo(final IConsumer<? super E> consumer, final int max)
+	{
+		if (consumer == null)
+			throw new IllegalArgumentException("consumer can't be null");
+		final long c = consumerIndex.get();
+		final long available = (consumerIndex.cache = producerIndex.get()) - c;
+		final int n = (int) Math.min(available, max);
+		if (n <= 0)
+			return 0;
+		
+		final E[] buffer = this.buffer;
+		int k = 0;
+		try {
+			while (k < n) {
+				final int i = (int) (c + k) & mask;
+				final E e = buffer[i];
+				buffer[i] = null;
+				++k;
+				consumer.accept(e);
+			}
+		} finally {
+			consumerIndex.lazySet(c + k); //if consumer throws, only what it has seen is removed
+		}
+		return n;
+	}
+	
+	/**
+	 * Removes all elements currently in the queue. <i>(Consumer thread only!)</i>
+	 */
+	@Override
+	public void clear()
+	{
+		while (poll() != null);
+	}
+	
+	/**
+	 * Estimated number of elements in the queue. (Exact if called from the producer or consumer thread while the
+	 * other side is idle.)
+	 */
+	@Override
+	public int size()
+	{
+		long c, p;
+		do {
+			c = consumerIndex.get();
+			p = producerIndex.get();
+		} while (c != consumerIndex.get());
+		return (int) Math.max(0L, Math.min(p - c, mask + 1L));
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return consumerIndex.get() >= producerIndex.get();
+	}
+}
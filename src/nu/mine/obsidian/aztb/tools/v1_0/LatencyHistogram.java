@@ -0,0 +1,231 @@
+package nu.mine.obsidian.aztb.tools.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Arrays;
+
+/**
+ * Compact, fixed size histogram of (non-negative) {@code long} values, typically latencies in nanoseconds.
+ * <p/>Values are counted in log-linear buckets: every power of 2 is split into 2^{@code precisionBits} linear
+ * sub-buckets, so any value is reported within a relative error of 1 / 2^{@code precisionBits} (6.25% by default),
+ * over the whole {@code long} range. Memory use is fixed regardless of the number of samples.
+ * <ul>
+ *  <li>{@link #record(long)}: <i>O(1)</i>, no allocation</li>
+ *  <li>{@link #getValueAtPercentile(double)}: <i>O(buckets)</i></li>
+ *  <li>{@link #merge(LatencyHistogram)}: <i>O(buckets)</i> - use one histogram per thread and merge them for
+ *      reporting</li>
+ * </ul>
+ * <i>Note: Not thread safe. Negative values are recorded as 0.</i>
+ * @author AnorZaken
+ * @version 1.0
+ * @see NanoTimer#stop(LatencyHistogram)
+ */
+public final class LatencyHistogram
+{
+	private final int subBits;
+	private final long[] counts;
+	
+	private long count = 0L;
+	private long sum = 0L;
+	private long min = Long.MAX_VALUE;
+	private long max = 0L;
+	
+	// ===================
+	
+	/**
+	 * Create a {@link LatencyHistogram} with 4 precision bits (6.25% relative error, 960 buckets).
+	 */
+	public LatencyHistogram() {
+		this(4);
+	}
+	
+	/**
+	 * Create a {@link LatencyHistogram} with 2^{@code precisionBits} sub-buckets per power of 2.
+	 * @param precisionBits [1 to 10] (relative error 1 / 2^{@code precisionBits}, (64 - precisionBits) *
+	 * 2^{@code precisionBits} buckets)
+	 */
+	public LatencyHistogram(final int precisionBits)
+	{
+		if (precisionBits < 1 || precisionBits > 10)
+			throw new IllegalArgumentException("Illegal precisionBits: " + precisionBits);
+		subBits = precisionBits;
+		counts = new long[(64 - precisionBits) << precisionBits];
+	}
+	
+	// ===================
+	
+	private int bucketOf(final long value)
+	{
+		if (value < (1L << subBits))
+			return value <= 0L ? 0 : (int) value;
+		final int exp = 63 - Long.numberOfLeadingZeros(value);
+		final int group = exp - subBits + 1;
+		return (group << subBits) | (int) ((value >>> (exp - subBits)) & ((1L << subBits) - 1L));
+	}
+	
+	private long bucketUpperBound(final int bucket)
+	{
+		final int group = bucket >>> subBits;
+		final int sub = bucket & ((1 << subBits) - 1);
+		if (group == 0)
+			return sub;
+		final int shift = group - 1;
+		return ((long) ((1 << subBits) + sub) << shift) + ((1L << shift) - 1L);
+	}
+	
+	// ===================
+	
+	/**
+	 * Record one value. <i>O(1)</i>
+	 */
+	public void record(final long value) {
+		record(value, 1L);
+	}
+	
+	/**
+	 * Record {@code value} {@code times} times. <i>O(1)</i>
+	 * @throws IllegalArgumentException if {@code times} is negative
+	 */
+	public void record(long value, final long times)
+	{
+		if (times < 0L)
+			throw new IllegalArgumentException("Illegal times: " + times);
+		if (times == 0L)
+			return;
+		if (value < 0L)
+			value = 0L;
+		counts[bucketOf(value)] += times;
+		count += times;
+		sum += value * times;
+		if (value < min)
+			min = value;
+		if (value > max)
+			max = value;
+	}
+	
+	/**
+	 * Adds all values recorded in {@code other} to this histogram. ({@code other} is not modified.)
+	 * @throws IllegalArgumentException if {@code other} is {@code null} or has different precision
+	 */
+	public void merge(final LatencyHistogram other)
+	{
+		if (other == null)
+			throw new IllegalArgumentException("other can't be null");
+		if (other.subBits != subBits)
+			throw new IllegalArgumentException("other has different precision");
+		if (other.count == 0L)
+			return;
+		final long[] src = other.counts;
+		for (int i = 0; i < src.length; ++i)
+			counts[i] += src[i];
+		count += other.count;
+		sum += other.sum;
+		if (other.min < min)
+			min = other.min;
+		if (other.max > max)
+			max = other.max;
+	}
+	
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset()
+	{
+		Arrays.fill(counts, 0L);
+		count = 0L;
+		sum = 0L;
+		min = Long.MAX_VALUE;
+		max = 0L;
+	}
+	
+	// ===================
+	
+	/**
+	 * Get the precision bits of this histogram.
+	 * @see #LatencyHistogram(int)
+	 */
+	public int getPrecisionBits() {
+		return subBits;
+	}
+	
+	/**
+	 * Number of recorded values.
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Sum of all recorded values.
+	 */
+	public long getSum() {
+		return sum;
+	}
+	
+	/**
+	 * Smallest recorded value (exact), or 0 if empty.
+	 */
+	public long getMin() {
+		return count == 0L ? 0L : min;
+	}
+	
+	/**
+	 * Largest recorded value (exact), or 0 if empty.
+	 */
+	public long getMax() {
+		return max;
+	}
+	
+	/**
+	 * Mean of all recorded values (exact), or 0 if empty.
+	 */
+	public double getMean() {
+		return count == 0L ? 0d : (double) sum / count;
+	}
+	
+	/**
+	 * Approximate value at {@code percentile} (e.g. 50, 90, 99, 99.9), or 0 if empty.
+	 * <br><i>The result is the upper bound of the bucket holding that rank (clamped to [{@link #getMin()},
+	 * {@link #getMax()}]), so it is never lower than the true value.</i>
+	 * @param percentile [0 to 100]
+	 * @throws IllegalArgumentException if {@code percentile} is out of range
+	 */
+	public long getValueAtPercentile(final double percentile)
+	{
+		if (!(percentile >= 0d && percentile <= 100d))
+			throw new IllegalArgumentException("Illegal percentile: " + percentile);
+		if (count == 0L)
+			return 0L;
+		final long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * count));
+		long seen = 0L;
+		int bucket = 0;
+		while ((seen += counts[bucket]) < rank)
+			++bucket;
+		return Math.max(min, Math.min(max, bucketUpperBound(bucket)));
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "count=" + count + ", min=" + getMin() + ", mean=" + (long) getMean()
+				+ ", p50=" + getValueAtPercentile(50d) + ", p90=" + getValueAtPercentile(90d)
+				+ ", p99=" + getValueAtPercentile(99d) + ", p999=" + getValueAtPercentile(99.9d)
+				+ ", max=" + max;
+	}
+}
@@ -0,0 +1,256 @@
+package nu.mine.obsidian.aztb.tools.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Exports a {@link MetricsRegistry} on background (daemon) threads, so the main server thread is never blocked:
+ * <ul>
+ *  <li>{@link #startFileExport(File, Format, long)}: periodically (over)writes a file. The file is written to a
+ *      temporary file first and then moved in place, so readers never see a half written file.</li>
+ *  <li>{@link #startHttpServer(InetSocketAddress)}: serves {@code /metrics} (Prometheus text format) and
+ *      {@code /metrics.json} on a local HTTP socket.</li>
+ * </ul>
+ * Call {@link #close()} (e.g. in {@code onDisable()}) to stop all exporting.
+ * @author AnorZaken
+ * @version 1.0
+ * @see MetricsRegistry
+ */
+public final class MetricsExporter implements Closeable
+{
+	/**
+	 * Output format.
+	 */
+	public enum Format
+	{
+		PROMETHEUS, JSON
+	}
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private static final ThreadFactory daemonFactory = new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r)
+		{
+			final Thread t = new Thread(r, "AZTB metrics exporter");
+			t.setDaemon(true);
+			return t;
+		}
+	};
+	
+	private final MetricsRegistry registry;
+	private final Logger logger;
+	private ScheduledExecutorService fileExecutor = null;
+	private HttpServer httpServer = null;
+	private ExecutorService httpExecutor = null;
+	
+	// ===================
+	
+	/**
+	 * @param registry the registry to export
+	 * @param logger used to report export failures, or {@code null} for silent operation
+	 * @throws IllegalArgumentException if {@code registry} is {@code null}
+	 */
+	public MetricsExporter(final MetricsRegistry registry, final Logger logger)
+	{
+		if (registry == null)
+			throw new IllegalArgumentException("registry can't be null");
+		this.registry = registry;
+		this.logger = logger;
+	}
+	
+	// ===================
+	
+	/**
+	 * Starts writing the registry to {@code file} every {@code periodMillis} milliseconds.
+	 * @throws IllegalArgumentException if {@code file} or {@code format} is {@code null}, or {@code periodMillis}
+	 *  isn't positive
+	 * @throws IllegalStateException if file export is already started
+	 */
+	public synchronized void startFileExport(final File file, final Format format, final long periodMillis)
+	{
+		if (file == null)
+			throw new IllegalArgumentException("file can't be null");
+		if (format == null)
+			throw new IllegalArgumentException("format can't be null");
+		if (periodMillis <= 0L)
+			throw new IllegalArgumentException("Illegal periodMillis: " + periodMillis);
+		if (fileExecutor != null)
+			throw new IllegalStateException("file export already started");
+		fileExecutor = Executors.newSingleThreadScheduledExecutor(daemonFactory);
+		fileExecutor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						writeFile(file, format);
+					} catch (final IOException ex) {
+						if (logger != null)
+							logger.log(Level.WARNING, "Failed to export metrics to " + file, ex);
+					} catch (final RuntimeException ex) {
+						//must not escape, or the executor silently cancels all further exports
+						if (logger != null)
+							logger.log(Level.WARNING, "Failed to export metrics to " + file, ex);
+					}
+				}
+			}, 0L, periodMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Writes the registry to {@code file} right now (on the calling thread), via a uniquely named temporary file
+	 * that is synced to disk and then moved over {@code file}. (The temporary file is removed if anything fails.)
+	 * @throws IOException if writing fails
+	 */
+	public void writeFile(final File file, final Format format) throws IOException
+	{
+		final File target = file.getAbsoluteFile();
+		final File dir = target.getParentFile();
+		if (!dir.exists())
+			dir.mkdirs();
+		final Path tmp = Files.createTempFile(dir.toPath(), target.getName() + ".", ".tmp");
+		boolean moved = false;
+		try {
+			try (FileOutputStream fos = new FileOutputStream(tmp.toFile())) {
+				final Writer out = new OutputStreamWriter(fos, UTF8);
+				write(out, format);
+				out.flush();
+				fos.getFD().sync();
+			}
+			try {
+				Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException ex) {
+				Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			moved = true;
+		} finally {
+			if (!moved) {
+				try {
+					Files.deleteIfExists(tmp);
+				} catch (final IOException ex) {
+					//(don't hide the original exception)
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Starts a HTTP server on {@code address} (e.g. {@code new InetSocketAddress("127.0.0.1", 9225)}) serving
+	 * {@code /metrics} in Prometheus text format and {@code /metrics.json} in JSON.
+	 * @throws IOException if the server can't be bound to {@code address}
+	 * @throws IllegalArgumentException if {@code address} is {@code null}
+	 * @throws IllegalStateException if the HTTP server is already started
+	 */
+	public synchronized void startHttpServer(final InetSocketAddress address) throws IOException
+	{
+		if (address == null)
+			throw new IllegalArgumentException("address can't be null");
+		if (httpServer != null)
+			throw new IllegalStateException("http server already started");
+		final HttpServer server = HttpServer.create(address, 0);
+		server.createContext("/metrics", new Handler(Format.PROMETHEUS, "text/plain; version=0.0.4; charset=utf-8"));
+		server.createContext("/metrics.json", new Handler(Format.JSON, "application/json; charset=utf-8"));
+		httpExecutor = Executors.newSingleThreadExecutor(daemonFactory);
+		server.setExecutor(httpExecutor);
+		server.start();
+		httpServer = server;
+	}
+	
+	/**
+	 * Stops file export and the HTTP server (if started).
+	 */
+	@Override
+	public synchronized void close()
+	{
+		if (fileExecutor != null) {
+			fileExecutor.shutdownNow();
+			fileExecutor = null;
+		}
+		if (httpServer != null) {
+			httpServer.stop(0);
+			httpExecutor.shutdownNow();
+			httpServer = null;
+			httpExecutor = null;
+		}
+	}
+	
+	// ===================
+	
+	private void write(final Appendable out, final Format format) throws IOException
+	{
+		if (format == Format.JSON)
+			registry.writeJson(out);
+		else
+			registry.writePrometheus(out);
+	}
+	
+	private final class Handler implements HttpHandler
+	{
+		private final Format format;
+		private final String contentType;
+		
+		Handler(final Format format, final String contentType) {
+			this.format = format;
+			this.contentType = contentType;
+		}
+		
+		@Override
+		public void handle(final HttpExchange exchange) throws IOException
+		{
+			try {
+				if (!"GET".equals(exchange.getRequestMethod())) {
+					exchange.sendResponseHeaders(405, -1L);
+					return;
+				}
+				final StringBuilder sb = new StringBuilder(4096);
+				write(sb, format);
+				final byte[] body = sb.toString().getBytes(UTF8);
+				exchange.getResponseHeaders().set("Content-Type", contentType);
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(body);
+				}
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+}
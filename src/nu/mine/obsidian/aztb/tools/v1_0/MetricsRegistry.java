@@ -0,0 +1,283 @@
+package nu.mine.obsidian.aztb.tools.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A registry of named metrics: {@link StripedCounter counters}, {@link Histogram histograms} and
+ * {@link IGauge gauges}, that can be written out as Prometheus text format or JSON.
+ * <p/>Recording is cheap and never blocks for long, so metrics can be updated from the main server thread. Writing
+ * the registry out is meant to be done from another thread, e.g. by a {@link MetricsExporter}.
+ * <p/>The toolbox classes publish into the {@link #getDefault() default registry} (all names prefixed "aztb_").
+ * @author AnorZaken
+ * @version 1.0
+ * @see MetricsExporter
+ */
+public final class MetricsRegistry
+{
+	/**
+	 * A metric whose value is read when the registry is written out. <i>(Called from the exporting thread, so it
+	 * must be thread safe!)</i>
+	 * @author AnorZaken
+	 */
+	public static interface IGauge
+	{
+		public double getValue();
+	}
+	
+	/**
+	 * A thread safe {@link LatencyHistogram}.
+	 * <br><i>Recording takes a (practically uncontended) lock - the exporting thread only holds it while copying.</i>
+	 * @author AnorZaken
+	 */
+	public static final class Histogram
+	{
+		private final LatencyHistogram histogram = new LatencyHistogram();
+		
+		private Histogram() {}
+		
+		public void record(final long value)
+		{
+			synchronized (histogram) {
+				histogram.record(value);
+			}
+		}
+		
+		/**
+		 * Records {@code System.nanoTime() - startNanos}.
+		 */
+		public void recordSince(final long startNanos) {
+			record(System.nanoTime() - startNanos);
+		}
+		
+		/**
+		 * Get a copy of the recorded values.
+		 */
+		public LatencyHistogram snapshot()
+		{
+			final LatencyHistogram copy = new LatencyHistogram(histogram.getPrecisionBits());
+			synchronized (histogram) {
+				copy.merge(histogram);
+			}
+			return copy;
+		}
+		
+		public void reset()
+		{
+			synchronized (histogram) {
+				histogram.reset();
+			}
+		}
+	}
+	
+	private static final class Entry
+	{
+		final String help;
+		final Object metric;
+		
+		Entry(final String help, final Object metric) {
+			this.help = help;
+			this.metric = metric;
+		}
+	}
+	
+	// ===================
+	
+	private static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+	
+	private static final double[] PERCENTILES = { 50d, 90d, 99d, 99.9d };
+	private static final String[] QUANTILE_LABELS = { "0.5", "0.9", "0.99", "0.999" };
+	private static final String[] JSON_KEYS = { "p50", "p90", "p99", "p999" };
+	
+	private final ConcurrentSkipListMap<String, Entry> metrics = new ConcurrentSkipListMap<String, Entry>();
+	
+	/**
+	 * The registry that the toolbox classes publish their metrics into.
+	 */
+	public static MetricsRegistry getDefault() {
+		return defaultRegistry;
+	}
+	
+	// ===================
+	
+	/**
+	 * Get the counter named {@code name}, creating it if needed.
+	 * @param name a Prometheus metric name (by convention ending with "_total")
+	 * @param help description of the metric (only used if it is created)
+	 * @throws IllegalArgumentException if {@code name} is not a valid metric name or is already used by another kind
+	 *  of metric
+	 */
+	public StripedCounter counter(final String name, final String help) {
+		return register(name, help, StripedCounter.class);
+	}
+	
+	/**
+	 * Get the histogram named {@code name}, creating it if needed.
+	 * @param name a Prometheus metric name (by convention ending with the unit, e.g. "_nanos")
+	 * @param help description of the metric (only used if it is created)
+	 * @throws IllegalArgumentException if {@code name} is not a valid metric name or is already used by another kind
+	 *  of metric
+	 */
+	public Histogram histogram(final String name, final String help) {
+		return register(name, help, Histogram.class);
+	}
+	
+	/**
+	 * Register a gauge named {@code name}, replacing any gauge with the same name.
+	 * @param name a Prometheus metric name
+	 * @param help description of the metric
+	 * @throws IllegalArgumentException if {@code name} is not a valid metric name or is already used by another kind
+	 *  of metric, or if {@code gauge} is {@code null}
+	 */
+	public void gauge(final String name, final String help, final IGauge gauge)
+	{
+		if (gauge == null)
+			throw new IllegalArgumentException("gauge can't be null");
+		checkName(name);
+		final Entry old = metrics.put(name, new Entry(help, gauge));
+		if (old != null && !(old.metric instanceof IGauge)) {
+			metrics.put(name, old);
+			throw new IllegalArgumentException(name + " is already registered as another kind of metric");
+		}
+	}
+	
+	/**
+	 * Removes the metric named {@code name}.
+	 * @return {@code true} if a metric was removed
+	 */
+	public boolean remove(final String name) {
+		return name != null && metrics.remove(name) != null;
+	}
+	
+	private <M> M register(final String name, final String help, final Class<M> clazz)
+	{
+		checkName(name);
+		Entry e = metrics.get(name);
+		if (e == null) {
+			final Object metric = clazz == StripedCounter.class ? new StripedCounter() : new Histogram();
+			final Entry prev = metrics.putIfAbsent(name, e = new Entry(help, metric));
+			if (prev != null)
+				e = prev;
+		}
+		if (!clazz.isInstance(e.metric))
+			throw new IllegalArgumentException(name + " is already registered as another kind of metric");
+		return clazz.cast(e.metric);
+	}
+	
+	private static void checkName(final String name)
+	{
+		if (name == null)
+			throw new IllegalArgumentException("name can't be null");
+		boolean valid = name.length() != 0;
+		for (int i = 0; i < name.length() && valid; ++i) {
+			final char c = name.charAt(i);
+			valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':' || (i != 0 && c >= '0' && c <= '9');
+		}
+		if (!valid)
+			throw new IllegalArgumentException("Illegal metric name: " + name);
+	}
+	
+	// ===================
+	
+	/**
+	 * Writes all metrics in Prometheus text exposition format (histograms as summaries with quantiles 0.5, 0.9, 0.99
+	 * and 0.999).
+	 * @throws IOException if {@code out} throws
+	 */
+	public void writePrometheus(final Appendable out) throws IOException
+	{
+		for (final Map.Entry<String, Entry> me : metrics.entrySet())
+		{
+			final String name = me.getKey();
+			final Entry e = me.getValue();
+			if (e.help != null)
+				out.append("# HELP ").append(name).append(' ').append(escapeHelp(e.help)).append('\n');
+			if (e.metric instanceof StripedCounter) {
+				out.append("# TYPE ").append(name).append(" counter\n");
+				out.append(name).append(' ').append(Long.toString(((StripedCounter) e.metric).sum())).append('\n');
+			}
+			else if (e.metric instanceof IGauge) {
+				out.append("# TYPE ").append(name).append(" gauge\n");
+				out.append(name).append(' ').append(formatDouble(((IGauge) e.metric).getValue())).append('\n');
+			}
+			else {
+				final LatencyHistogram h = ((Histogram) e.metric).snapshot();
+				out.append("# TYPE ").append(name).append(" summary\n");
+				for (int i = 0; i < PERCENTILES.length; ++i)
+					out.append(name).append("{quantile=\"").append(QUANTILE_LABELS[i]).append("\"} ")
+							.append(Long.toString(h.getValueAtPercentile(PERCENTILES[i]))).append('\n');
+				out.append(name).append("_sum ").append(Long.toString(h.getSum())).append('\n');
+				out.append(name).append("_count ").append(Long.toString(h.getCount())).append('\n');
+			}
+		}
+	}
+	
+	/**
+	 * Writes all metrics as one JSON object: {@code {"name": {"type": ..., ...}, ...}}
+	 * @throws IOException if {@code out} throws
+	 */
+	public void writeJson(final Appendable out) throws IOException
+	{
+		out.append('{');
+		boolean first = true;
+		for (final Map.Entry<String, Entry> me : metrics.entrySet())
+		{
+			final Object metric = me.getValue().metric;
+			if (!first)
+				out.append(',');
+			first = false;
+			out.append("\n  \"").append(me.getKey()).append("\": {");
+			if (metric instanceof StripedCounter)
+				out.append("\"type\": \"counter\", \"value\": ").append(Long.toString(((StripedCounter) metric).sum()));
+			else if (metric instanceof IGauge) {
+				final double v = ((IGauge) metric).getValue();
+				out.append("\"type\": \"gauge\", \"value\": ")
+						.append(Double.isNaN(v) || Double.isInfinite(v) ? "null" : Double.toString(v));
+			}
+			else {
+				final LatencyHistogram h = ((Histogram) metric).snapshot();
+				out.append("\"type\": \"histogram\", \"count\": ").append(Long.toString(h.getCount()))
+						.append(", \"sum\": ").append(Long.toString(h.getSum()))
+						.append(", \"min\": ").append(Long.toString(h.getMin()))
+						.append(", \"max\": ").append(Long.toString(h.getMax()));
+				for (int i = 0; i < PERCENTILES.length; ++i)
+					out.append(", \"").append(JSON_KEYS[i]).append("\": ")
+							.append(Long.toString(h.getValueAtPercentile(PERCENTILES[i])));
+			}
+			out.append('}');
+		}
+		out.append("\n}\n");
+	}
+	
+	private static String escapeHelp(final String help) {
+		return help.replace("\\", "\\\\").replace("\n", "\\n");
+	}
+	
+	private static String formatDouble(final double v)
+	{
+		if (Double.isNaN(v))
+			return "NaN";
+		else if (Double.isInfinite(v))
+			return v > 0d ? "+Inf" : "-Inf";
+		return Double.toString(v);
+	}
+}
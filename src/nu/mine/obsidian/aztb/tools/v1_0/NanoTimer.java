@@ -20,6 +20,7 @@ package nu.mine.obsidian.aztb.tools.v1_0;
 
 /**
  * Small stop-watch class that relies on {@link System#nanoTime()}.
+ * <br>Use {@link #stop(LatencyHistogram)} to collect a latency distribution over many measurements.
  * @author AnorZaken
  * @version 1.0
  */
@@ -52,6 +53,23 @@ public final class NanoTimer
 		}
 	}
 	
+	/**
+	 * Same as {@link #stop()}, but also records the elapsed time (in nanoseconds) into {@code histogram}.
+	 * <br><i>Nothing is recorded if the timer is in {@link TimerState#Ready Ready} state.</i>
+	 * @throws IllegalArgumentException if {@code histogram} is {@code null}
+	 */
+	public void stop(final LatencyHistogram histogram)
+	{
+		if(histogram == null)
+			throw new IllegalArgumentException("histogram can't be null");
+		if(state != TimerState.Ready)
+		{
+			mStopTime = System.nanoTime();
+			state = TimerState.Stopped;
+			histogram.record(mStopTime - mStartTime);
+		}
+	}
+	
 	public void reset()
 	{
 		state = TimerState.Ready;
@@ -76,4 +94,12 @@ public final class NanoTimer
 	{
 		return elapsedNanoSeconds_Full() / ONE_SECOND_NANO;
 	}
+	
+	/**
+	 * Elapsed time in seconds, including the fraction. (Unlike {@link #elapsedSeconds_Full()}, which truncates.)
+	 */
+	public double elapsedSeconds()
+	{
+		return elapsedNanoSeconds_Full() / (double) ONE_SECOND_NANO;
+	}
 }
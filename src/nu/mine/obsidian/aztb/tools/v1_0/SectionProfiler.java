@@ -0,0 +1,397 @@
+package nu.mine.obsidian.aztb.tools.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical profiler with named, nestable sections, built on {@link NanoTimer} (one preallocated timer per nesting
+ * level) but aggregating.
+ * <p/>Usage (on one thread, typically the main server thread):
+ * <pre>
+ * profiler.enter("recipes");
+ * try {
+ *     profiler.enter("matching");
+ *     ...
+ *     profiler.exit();
+ * } finally {
+ *     profiler.exit();
+ * }
+ * ...
+ * profiler.tick(); //once per server tick (e.g. from a repeating task)
+ * </pre>
+ * Every section path (e.g. "recipes" &gt; "matching") gets its own id, with call count, total / max time, a log2
+ * latency histogram and per-tick totals kept in preallocated primitive arrays. Once every section has been visited
+ * {@link #enter(String)} / {@link #exit()} don't allocate anything.
+ * <p/><i>Note: Not thread safe - use one profiler per thread.
+ * <br>Section names are compared by identity first, so passing string literals (or other constants) is fastest.</i>
+ * @author AnorZaken
+ * @version 1.0
+ */
+public final class SectionProfiler
+{
+	/**
+	 * Id of the (implicit) root section, the parent of all top level sections.
+	 */
+	public static final int ROOT = 0;
+	
+	private static final int BUCKETS = 64; //log2 histogram: bucket b holds durations [2^(b-1) to 2^b - 1]
+	private static final int INITIAL_SECTIONS = 32;
+	private static final int INITIAL_DEPTH = 16;
+	
+	//--- section tree (child-sibling lists) ---
+	private String[] names;
+	private int[] parent;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int sections;
+	
+	//--- stats ---
+	private long[] calls;
+	private long[] totalNanos;
+	private long[] maxNanos;
+	private long[] histogram; //sections * BUCKETS
+	private long[] tickNanos; //accumulating during the current tick
+	private long[] lastTickNanos;
+	private long[] maxTickNanos;
+	private long ticks = 0L;
+	
+	//--- open sections ---
+	private int[] stack;
+	private NanoTimer[] timers;
+	private int depth = 0;
+	
+	// ===================
+	
+	public SectionProfiler()
+	{
+		names = new String[INITIAL_SECTIONS];
+		parent = new int[INITIAL_SECTIONS];
+		firstChild = new int[INITIAL_SECTIONS];
+		nextSibling = new int[INITIAL_SECTIONS];
+		calls = new long[INITIAL_SECTIONS];
+		totalNanos = new long[INITIAL_SECTIONS];
+		maxNanos = new long[INITIAL_SECTIONS];
+		histogram = new long[INITIAL_SECTIONS * BUCKETS];
+		tickNanos = new long[INITIAL_SECTIONS];
+		lastTickNanos = new long[INITIAL_SECTIONS];
+		maxTickNanos = new long[INITIAL_SECTIONS];
+		stack = new int[INITIAL_DEPTH];
+		timers = fillTimers(new NanoTimer[INITIAL_DEPTH], 0);
+		
+		names[ROOT] = "";
+		parent[ROOT] = -1;
+		firstChild[ROOT] = -1;
+		nextSibling[ROOT] = -1;
+		sections = 1;
+		stack[0] = ROOT;
+	}
+	
+	// ===================
+	
+	/**
+	 * Opens a section named {@code name} inside the currently open section (or at top level). <i>O(siblings)</i>
+	 * <br>Must be matched by an {@link #exit()}.
+	 * @throws IllegalArgumentException if {@code name} is {@code null}
+	 */
+	public void enter(final String name)
+	{
+		if (name == null)
+			throw new IllegalArgumentException("name can't be null");
+		final int current = stack[depth];
+		int id = firstChild[current];
+		while (id != -1 && names[id] != name && !names[id].equals(name))
+			id = nextSibling[id];
+		if (id == -1)
+			id = addSection(current, name);
+		
+		if (++depth == stack.length) {
+			stack = Arrays.copyOf(stack, depth * 2);
+			timers = Arrays.copyOf(timers, depth * 2);
+			fillTimers(timers, depth);
+		}
+		stack[depth] = id;
+		timers[depth].start();
+	}
+	
+	/**
+	 * Closes the most recently opened section and records its duration.
+	 * @throws IllegalStateException if there is no open section
+	 */
+	public void exit()
+	{
+		if (depth == 0)
+			throw new IllegalStateException("no open section");
+		final NanoTimer timer = timers[depth];
+		timer.stop();
+		final int id = stack[depth--];
+		final long elapsed = timer.elapsedNanoSeconds_Full();
+		
+		++calls[id];
+		totalNanos[id] += elapsed;
+		tickNanos[id] += elapsed;
+		if (elapsed > maxNanos[id])
+			maxNanos[id] = elapsed;
+		++histogram[id * BUCKETS + bucketOf(elapsed)];
+		if (depth == 0)
+			tickNanos[ROOT] += elapsed;
+	}
+	
+	/**
+	 * Ends the current tick: rolls the time spent in every section during this tick into its per-tick stats.
+	 * Call once per server tick. <i>O(sections)</i>
+	 */
+	public void tick()
+	{
+		for (int id = 0; id < sections; ++id) {
+			final long t = tickNanos[id];
+			lastTickNanos[id] = t;
+			if (t > maxTickNanos[id])
+				maxTickNanos[id] = t;
+			tickNanos[id] = 0L;
+		}
+		++ticks;
+	}
+	
+	/**
+	 * Clears all stats (sections ids stay valid).
+	 * @throws IllegalStateException if there are open sections
+	 */
+	public void reset()
+	{
+		if (depth != 0)
+			throw new IllegalStateException("can't reset while sections are open");
+		Arrays.fill(calls, 0L);
+		Arrays.fill(totalNanos, 0L);
+		Arrays.fill(maxNanos, 0L);
+		Arrays.fill(histogram, 0L);
+		Arrays.fill(tickNanos, 0L);
+		Arrays.fill(lastTickNanos, 0L);
+		Arrays.fill(maxTickNanos, 0L);
+		ticks = 0L;
+	}
+	
+	/**
+	 * Number of currently open sections.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+	
+	// ===================
+	
+	private static NanoTimer[] fillTimers(final NanoTimer[] timers, final int from) {
+		for (int i = from; i < timers.length; ++i)
+			timers[i] = new NanoTimer();
+		return timers;
+	}
+	
+	private static int bucketOf(final long nanos) {
+		return nanos <= 0L ? 0 : Math.min(64 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1);
+	}
+	
+	private int addSection(final int parentId, final String name)
+	{
+		final int id = sections++;
+		if (id == names.length) {
+			final int cap = id * 2;
+			names = Arrays.copyOf(names, cap);
+			parent = Arrays.copyOf(parent, cap);
+			firstChild = Arrays.copyOf(firstChild, cap);
+			nextSibling = Arrays.copyOf(nextSibling, cap);
+			calls = Arrays.copyOf(calls, cap);
+			totalNanos = Arrays.copyOf(totalNanos, cap);
+			maxNanos = Arrays.copyOf(maxNanos, cap);
+			histogram = Arrays.copyOf(histogram, cap * BUCKETS);
+			tickNanos = Arrays.copyOf(tickNanos, cap);
+			lastTickNanos = Arrays.copyOf(lastTickNanos, cap);
+			maxTickNanos = Arrays.copyOf(maxTickNanos, cap);
+		}
+		names[id] = name;
+		parent[id] = parentId;
+		firstChild[id] = -1;
+		nextSibling[id] = firstChild[parentId];
+		firstChild[parentId] = id;
+		return id;
+	}
+	
+	// ===================
+	
+	/**
+	 * Number of sections (including {@link #ROOT}). Valid section ids are [0 to count - 1].
+	 */
+	public int getSectionCount() {
+		return sections;
+	}
+	
+	/**
+	 * Find the id of a section by its path of names, e.g. {@code getSectionId("recipes", "matching")}.
+	 * @return the section id, or -1 if no such section has been entered yet.
+	 */
+	public int getSectionId(final String... path)
+	{
+		int id = ROOT;
+		for (final String name : path) {
+			id = firstChild[id];
+			while (id != -1 && !names[id].equals(name))
+				id = nextSibling[id];
+			if (id == -1)
+				return -1;
+		}
+		return id;
+	}
+	
+	public String getName(final int id) {
+		return names[checkId(id)];
+	}
+	
+	/**
+	 * @return id of the parent section, or -1 for {@link #ROOT}.
+	 */
+	public int getParent(final int id) {
+		return parent[checkId(id)];
+	}
+	
+	/**
+	 * Number of times the section has been exited. (Always 0 for {@link #ROOT}.)
+	 */
+	public long getCalls(final int id) {
+		return calls[checkId(id)];
+	}
+	
+	/**
+	 * Total time spent in the section. (For {@link #ROOT}: total time spent in top level sections.)
+	 */
+	public long getTotalNanos(final int id) {
+		return id == ROOT ? sumTopLevel() : totalNanos[checkId(id)];
+	}
+	
+	/**
+	 * Longest single call of the section.
+	 */
+	public long getMaxNanos(final int id) {
+		return maxNanos[checkId(id)];
+	}
+	
+	/**
+	 * Approximate (log2 bucket upper bound, so at most 2x the true value) duration at {@code percentile} of all calls
+	 * of the section.
+	 * @param percentile [0 to 100]
+	 * @throws IllegalArgumentException if {@code percentile} is out of range
+	 */
+	public long getPercentileNanos(final int id, final double percentile)
+	{
+		if (!(percentile >= 0d && percentile <= 100d))
+			throw new IllegalArgumentException("Illegal percentile: " + percentile);
+		final long n = calls[checkId(id)];
+		if (n == 0L)
+			return 0L;
+		final long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * n));
+		final int offset = id * BUCKETS;
+		long seen = 0L;
+		int b = 0;
+		while ((seen += histogram[offset + b]) < rank)
+			++b;
+		return Math.min(b == 0 ? 0L : (1L << b) - 1L, maxNanos[id]);
+	}
+	
+	/**
+	 * Time spent in the section during the last completed tick.
+	 */
+	public long getLastTickNanos(final int id) {
+		return lastTickNanos[checkId(id)];
+	}
+	
+	/**
+	 * Most time spent in the section during a single tick.
+	 */
+	public long getMaxTickNanos(final int id) {
+		return maxTickNanos[checkId(id)];
+	}
+	
+	/**
+	 * Average time per tick spent in the section.
+	 */
+	public double getAverageTickNanos(final int id) {
+		return ticks == 0L ? 0d : (double) getTotalNanos(id) / ticks;
+	}
+	
+	/**
+	 * Number of completed ticks (calls to {@link #tick()}) since creation or the last {@link #reset()}.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	
+	private long sumTopLevel()
+	{
+		long sum = 0L;
+		for (int id = firstChild[ROOT]; id != -1; id = nextSibling[id])
+			sum += totalNanos[id];
+		return sum;
+	}
+	
+	private int checkId(final int id)
+	{
+		if (id < 0 || id >= sections)
+			throw new IndexOutOfBoundsException();
+		return id;
+	}
+	
+	// ===================
+	
+	/**
+	 * Appends a human readable report of all sections (as an indented tree) to {@code sb}:
+	 * <br>{@code name: calls, avg ms/tick, max ms/tick, avg ms/call, p99 ms/call, max ms/call}
+	 * @return {@code sb}
+	 */
+	public StringBuilder appendReport(final StringBuilder sb)
+	{
+		sb.append("ticks: ").append(ticks).append(", avg ms/tick: ")
+				.append(ms(getAverageTickNanos(ROOT))).append(", max ms/tick: ")
+				.append(ms(maxTickNanos[ROOT])).append('\n');
+		appendChildren(sb, ROOT, 1);
+		return sb;
+	}
+	
+	private void appendChildren(final StringBuilder sb, final int parentId, final int indent)
+	{
+		for (int id = firstChild[parentId]; id != -1; id = nextSibling[id])
+		{
+			for (int i = 0; i < indent; ++i)
+				sb.append("  ");
+			sb.append(names[id]).append(": ").append(calls[id]).append(" calls, ")
+					.append(ms(getAverageTickNanos(id))).append(" avg ms/tick, ")
+					.append(ms(maxTickNanos[id])).append(" max ms/tick, ")
+					.append(ms(calls[id] == 0L ? 0d : (double) totalNanos[id] / calls[id])).append(" avg ms/call, ")
+					.append(ms(getPercentileNanos(id, 99d))).append(" p99 ms/call, ")
+					.append(ms(maxNanos[id])).append(" max ms/call\n");
+			appendChildren(sb, id, indent + 1);
+		}
+	}
+	
+	private static String ms(final double nanos) {
+		return String.format("%.3f", nanos / 1000000d);
+	}
+	
+	@Override
+	public String toString() {
+		return appendReport(new StringBuilder()).toString();
+	}
+}
@@ -0,0 +1,103 @@
+package nu.mine.obsidian.aztb.tools.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe counter for values that are updated often (from several threads) but read rarely.
+ * <p/>The count is spread over a number of cells (one cache line each), and every thread updates the cell picked by
+ * its thread id. This way threads rarely contend on the same cache line, unlike with a single
+ * {@link java.util.concurrent.atomic.AtomicLong AtomicLong}. {@link #sum()} adds up all cells.
+ * <br><i>(Same idea as Java 8's LongAdder, but with a fixed number of cells.)</i>
+ * @author AnorZaken
+ * @version 1.0
+ */
+public final class StripedCounter
+{
+	private static final int PAD = 8; //8 longs = 64 bytes = one cache line per cell
+	
+	private final AtomicLongArray cells;
+	private final int mask;
+	
+	// ===================
+	
+	/**
+	 * Create a {@link StripedCounter} with 2 cells per available processor (max 64).
+	 */
+	public StripedCounter() {
+		this(Math.min(Runtime.getRuntime().availableProcessors() * 2, 64));
+	}
+	
+	/**
+	 * Create a {@link StripedCounter} with {@code stripes} cells (rounded up to nearest power of 2, max 1024).
+	 */
+	public StripedCounter(final int stripes)
+	{
+		if (stripes <= 0)
+			throw new IllegalArgumentException("Illegal stripes: " + stripes);
+		final int n = Math.min(Integer.bitCount(stripes) == 1 ? stripes : Integer.highestOneBit(stripes) << 1, 1024);
+		cells = new AtomicLongArray(n * PAD);
+		mask = n - 1;
+	}
+	
+	// ===================
+	
+	private int cell()
+	{
+		int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+		h ^= h >>> 16;
+		return (h & mask) * PAD;
+	}
+	
+	public void increment() {
+		cells.getAndIncrement(cell());
+	}
+	
+	public void add(final long x) {
+		cells.getAndAdd(cell(), x);
+	}
+	
+	/**
+	 * The current count. <i>O(cells)</i>
+	 * <br><i>Not an atomic snapshot: concurrent updates may or may not be included.</i>
+	 */
+	public long sum()
+	{
+		long sum = 0L;
+		for (int i = 0; i < cells.length(); i += PAD)
+			sum += cells.get(i);
+		return sum;
+	}
+	
+	/**
+	 * Resets the count to 0.
+	 * <br><i>Not atomic: concurrent updates may be lost.</i>
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < cells.length(); i += PAD)
+			cells.set(i, 0L);
+	}
+	
+	@Override
+	public String toString() {
+		return Long.toString(sum());
+	}
+}
@@ -0,0 +1,346 @@
+package nu.mine.obsidian.aztb.tools.v1_0;
+
+/* Copyright (C) 2014 Nicklas Damgren (aka AnorZaken)
+ * 
+ * This file is part of AZTB (AnorZakens ToolBox).
+ *
+ * AZTB is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AZTB is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with AZTB.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Garbage free timing of code blocks, using try-with-resources:
+ * <pre>
+ * private static final int ON_COMMAND = Timing.register("onCommand");
+ * ...
+ * try (Timing.Scope scope = Timing.scope(ON_COMMAND)) {
+ *     ...
+ * }
+ * </pre>
+ * Each thread has its own (thread-local) pool of reusable {@link Scope} handles and stats, so once a thread has
+ * warmed up {@link #scope(int)} and {@link Scope#close()} don't allocate anything and never contend with other threads.
+ * <p/>Also pools {@link NanoTimer NanoTimers} for code that needs a stop-watch: {@link #acquireTimer()} /
+ * {@link #releaseTimer(NanoTimer)}.
+ * <p/><i>Note: Stats are summed over all threads when read. Reading while other threads are recording gives an
+ * approximate (slightly stale) result. The stats of threads that have died are folded into a retired total (on reads
+ * and {@link #prune()}), so thread pools that churn threads don't grow the per-thread list.</i>
+ * @author AnorZaken
+ * @version 1.0
+ */
+public final class Timing
+{
+	private Timing() {}
+	
+	private static final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	private static final List<String> names = new ArrayList<String>();
+	private static final CopyOnWriteArrayList<ThreadTiming> threads = new CopyOnWriteArrayList<ThreadTiming>();
+	private static final ThreadTiming retired = new ThreadTiming(null); //stats of dead threads, guarded by itself
+	
+	private static final ThreadLocal<ThreadTiming> local = new ThreadLocal<ThreadTiming>() {
+		@Override
+		protected ThreadTiming initialValue()
+		{
+			final ThreadTiming t = new ThreadTiming(Thread.currentThread());
+			threads.add(t);
+			return t;
+		}
+	};
+	
+	// ===================
+	
+	/**
+	 * A reusable handle for one timed block. Obtained from {@link Timing#scope(int)}, returned to the pool by
+	 * {@link #close()}.
+	 * <br><i>Don't keep references to a scope after closing it - it will be handed out again.</i>
+	 * @author AnorZaken
+	 */
+	public static final class Scope implements AutoCloseable
+	{
+		private final ThreadTiming owner;
+		private int id;
+		private long start;
+		
+		private Scope(final ThreadTiming owner) {
+			this.owner = owner;
+		}
+		
+		/**
+		 * Records the elapsed time and returns this handle to the pool.
+		 * @throws IllegalStateException if scopes are closed in another order than they were opened
+		 */
+		@Override
+		public void close()
+		{
+			final long elapsed = System.nanoTime() - start;
+			owner.pop(this);
+			owner.record(id, elapsed);
+		}
+	}
+	
+	private static final class ThreadTiming
+	{
+		private final WeakReference<Thread> thread; //null for the retired total
+		
+		private Scope[] scopes = new Scope[8];
+		private int depth = 0;
+		
+		private NanoTimer[] timers = new NanoTimer[4];
+		private int timerCount = 0;
+		
+		//written by the owning thread only
+		private long[] calls = new long[16];
+		private long[] totalNanos = new long[16];
+		private long[] maxNanos = new long[16];
+		
+		ThreadTiming(final Thread thread) {
+			this.thread = thread == null ? null : new WeakReference<Thread>(thread);
+		}
+		
+		boolean isDead()
+		{
+			final Thread t = thread.get();
+			return t == null || !t.isAlive();
+		}
+		
+		Scope push(final int id)
+		{
+			if (depth == scopes.length)
+				scopes = Arrays.copyOf(scopes, depth * 2);
+			Scope s = scopes[depth];
+			if (s == null)
+				s = scopes[depth] = new Scope(this);
+			++depth;
+			s.id = id;
+			s.start = System.nanoTime();
+			return s;
+		}
+		
+		void pop(final Scope scope)
+		{
+			if (depth == 0 || scopes[depth - 1] != scope)
+				throw new IllegalStateException("scope closed out of order (or twice)");
+			--depth;
+		}
+		
+		void record(final int id, final long elapsed)
+		{
+			ensureCapacity(id + 1);
+			++calls[id];
+			totalNanos[id] += elapsed;
+			if (elapsed > maxNanos[id])
+				maxNanos[id] = elapsed;
+		}
+		
+		/**
+		 * Adds the stats of {@code dead} to this. <i>(Retired total only.)</i>
+		 */
+		void fold(final ThreadTiming dead)
+		{
+			final int n = dead.calls.length;
+			ensureCapacity(n);
+			for (int id = 0; id < n; ++id) {
+				calls[id] += dead.calls[id];
+				totalNanos[id] += dead.totalNanos[id];
+				if (dead.maxNanos[id] > maxNanos[id])
+					maxNanos[id] = dead.maxNanos[id];
+			}
+		}
+		
+		private void ensureCapacity(final int min)
+		{
+			if (min > calls.length) {
+				final int cap = Math.max(calls.length * 2, min);
+				calls = Arrays.copyOf(calls, cap);
+				totalNanos = Arrays.copyOf(totalNanos, cap);
+				maxNanos = Arrays.copyOf(maxNanos, cap);
+			}
+		}
+	}
+	
+	// ===================
+	
+	/**
+	 * Get the id for {@code name}, registering it if needed. Call once and keep the id (e.g. in a static field).
+	 * @throws IllegalArgumentException if {@code name} is {@code null}
+	 */
+	public static int register(final String name)
+	{
+		if (name == null)
+			throw new IllegalArgumentException("name can't be null");
+		synchronized (ids)
+		{
+			final Integer id = ids.get(name);
+			if (id != null)
+				return id;
+			names.add(name);
+			ids.put(name, names.size() - 1);
+			return names.size() - 1;
+		}
+	}
+	
+	/**
+	 * Number of registered ids. Valid ids are [0 to count - 1].
+	 */
+	public static int getIdCount()
+	{
+		synchronized (ids) {
+			return names.size();
+		}
+	}
+	
+	/**
+	 * @throws IndexOutOfBoundsException if {@code id} isn't registered
+	 */
+	public static String getName(final int id)
+	{
+		synchronized (ids) {
+			return names.get(id);
+		}
+	}
+	
+	/**
+	 * Starts timing a block. The returned handle must be closed (preferably by try-with-resources) on the same thread.
+	 * @param id an id from {@link #register(String)}
+	 * @throws IllegalArgumentException if {@code id} is negative
+	 */
+	public static Scope scope(final int id)
+	{
+		if (id < 0)
+			throw new IllegalArgumentException("Illegal id: " + id);
+		return local.get().push(id);
+	}
+	
+	/**
+	 * Get a {@link NanoTimer} in {@link NanoTimer.TimerState#Ready Ready} state from this thread's pool.
+	 * Give it back with {@link #releaseTimer(NanoTimer)} when done.
+	 */
+	public static NanoTimer acquireTimer()
+	{
+		final ThreadTiming t = local.get();
+		if (t.timerCount == 0)
+			return new NanoTimer();
+		final NanoTimer timer = t.timers[--t.timerCount];
+		t.timers[t.timerCount] = null;
+		return timer;
+	}
+	
+	/**
+	 * Return a {@link NanoTimer} to this thread's pool. (It is {@link NanoTimer#reset() reset}.)
+	 * @throws IllegalArgumentException if {@code timer} is {@code null}
+	 */
+	public static void releaseTimer(final NanoTimer timer)
+	{
+		if (timer == null)
+			throw new IllegalArgumentException("timer can't be null");
+		final ThreadTiming t = local.get();
+		if (t.timerCount == t.timers.length)
+			t.timers = Arrays.copyOf(t.timers, t.timerCount * 2);
+		timer.reset();
+		t.timers[t.timerCount++] = timer;
+	}
+	
+	// ===================
+	
+	/**
+	 * Folds the stats of threads that have died into the retired total, and stops tracking those threads.
+	 * <i>(Reads do this too.)</i>
+	 * @return the number of threads pruned
+	 */
+	public static int prune()
+	{
+		synchronized (retired) {
+			return pruneLocked();
+		}
+	}
+	
+	private static int pruneLocked()
+	{
+		int pruned = 0;
+		for (final ThreadTiming t : threads) {
+			if (t.isDead() && threads.remove(t)) {
+				retired.fold(t);
+				++pruned;
+			}
+		}
+		return pruned;
+	}
+	
+	/**
+	 * Number of threads whose stats are tracked individually (threads that have recorded something and not been
+	 * {@link #prune() pruned}).
+	 */
+	public static int getThreadCount() {
+		return threads.size();
+	}
+	
+	/**
+	 * Number of closed scopes with {@code id}, over all threads.
+	 */
+	public static long getCalls(final int id)
+	{
+		synchronized (retired)
+		{
+			pruneLocked();
+			long sum = id < retired.calls.length ? retired.calls[id] : 0L;
+			for (final ThreadTiming t : threads) {
+				final long[] calls = t.calls;
+				if (id < calls.length)
+					sum += calls[id];
+			}
+			return sum;
+		}
+	}
+	
+	/**
+	 * Total time spent in scopes with {@code id}, over all threads.
+	 */
+	public static long getTotalNanos(final int id)
+	{
+		synchronized (retired)
+		{
+			pruneLocked();
+			long sum = id < retired.totalNanos.length ? retired.totalNanos[id] : 0L;
+			for (final ThreadTiming t : threads) {
+				final long[] totalNanos = t.totalNanos;
+				if (id < totalNanos.length)
+					sum += totalNanos[id];
+			}
+			return sum;
+		}
+	}
+	
+	/**
+	 * Longest single scope with {@code id}, over all threads.
+	 */
+	public static long getMaxNanos(final int id)
+	{
+		synchronized (retired)
+		{
+			pruneLocked();
+			long max = id < retired.maxNanos.length ? retired.maxNanos[id] : 0L;
+			for (final ThreadTiming t : threads) {
+				final long[] maxNanos = t.maxNanos;
+				if (id < maxNanos.length && maxNanos[id] > max)
+					max = maxNanos[id];
+			}
+			return max;
+		}
+	}
+}